@@ -41,6 +41,10 @@ import org.kohsuke.accmod.restrictions.None;
  * heavy-weight objects or other indices that you might need for implementing
  * access control checks. 
  *
+ * <p>
+ * The checker may inspect several classes concurrently, in which case the methods
+ * of the same instance can be called from multiple threads at once.
+ *
  * @author Kohsuke Kawaguchi
  */
 public abstract class AccessRestriction {
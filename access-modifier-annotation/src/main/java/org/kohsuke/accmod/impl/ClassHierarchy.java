@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Supertypes and other {@link ClassInfo} of classes, read from their class files.
+ *
+ * <p>
+ * The supertypes of each type are worked out once, and the {@link ClassInfo} of the most recently used
+ * classes are kept, so a single instance should be shared by everything that is checked together
+ * (see {@link Location#getClassHierarchy()}). It can be used concurrently.
+ *
+ * <p>
+ * Subclasses can take class files from elsewhere by overriding {@link #read(String)}.
+ */
+public class ClassHierarchy {
+    /**
+     * Default number of {@link ClassInfo}s kept.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private final ClassLoader classFiles;
+
+    /**
+     * Recently used {@link ClassInfo}s, keyed by their internal names.
+     */
+    private final Map<String, ClassInfo> infos;
+
+    /**
+     * From the internal name of a type to the internal names of all its supertypes.
+     */
+    private final Map<String, Set<String>> supertypes = new ConcurrentHashMap<>();
+
+    /**
+     * Types whose class file could not be found.
+     */
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param classFiles
+     *      Where class files are searched.
+     */
+    public ClassHierarchy(ClassLoader classFiles) {
+        this(classFiles, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param classFiles
+     *      Where class files are searched.
+     * @param cacheSize
+     *      Maximum number of {@link ClassInfo}s kept.
+     */
+    public ClassHierarchy(ClassLoader classFiles, final int cacheSize) {
+        this.classFiles = classFiles;
+        this.infos = new LinkedHashMap<String, ClassInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ClassInfo> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Obtains what the class file of the given type declares.
+     *
+     * @param type
+     *      Internal name of a type, such as "a/b/C".
+     * @return
+     *      null if the class file cannot be found.
+     * @throws IOException
+     *      if the class file cannot be read.
+     */
+    public ClassInfo getClassInfo(String type) throws IOException {
+        synchronized (infos) {
+            ClassInfo info = infos.get(type);
+            if (info != null) {
+                return info;
+            }
+        }
+        if (missing.contains(type)) {
+            return null;
+        }
+        ClassInfo info = read(type);
+        if (info == null) {
+            missing.add(type);
+            return null;
+        }
+        synchronized (infos) {
+            infos.put(type, info);
+        }
+        return info;
+    }
+
+    /**
+     * Reads the class file of the given type, which is not cached yet.
+     *
+     * @param type
+     *      Internal name of a type, such as "a/b/C".
+     * @return
+     *      null if the class file cannot be found.
+     */
+    protected ClassInfo read(String type) throws IOException {
+        try (InputStream is = classFiles.getResourceAsStream(type + ".class")) {
+            return is == null ? null : ClassInfo.read(new ClassReader(is));
+        }
+    }
+
+    /**
+     * Obtains all the direct and indirect superclasses and interfaces of the given type.
+     * Supertypes whose class files cannot be found are included, but not their own supertypes.
+     *
+     * @param type
+     *      Internal name of a type, such as "a/b/C".
+     * @return
+     *      null if the class file of the type itself cannot be found.
+     * @throws IOException
+     *      if a class file cannot be read.
+     */
+    public Set<String> getSupertypes(String type) throws IOException {
+        return getSupertypes(type, new HashSet<>());
+    }
+
+    /**
+     * Whether one type is the same as or a subtype of the other.
+     *
+     * @param type
+     *      Internal name of a type, such as "a/b/C".
+     * @param supertype
+     *      Internal name of a type, such as "a/b/D".
+     */
+    public boolean isSubtype(String type, String supertype) throws IOException {
+        if (type.equals(supertype)) {
+            return true;
+        }
+        Set<String> all = getSupertypes(type);
+        return all != null && all.contains(supertype);
+    }
+
+    /**
+     * @param visiting
+     *      Types whose supertypes are being worked out, to not go around in circles on broken class files.
+     */
+    private Set<String> getSupertypes(String type, Set<String> visiting) throws IOException {
+        Set<String> known = supertypes.get(type);
+        if (known != null || !visiting.add(type)) {
+            return known;
+        }
+        ClassInfo info = getClassInfo(type);
+        if (info == null) {
+            return null;
+        }
+        Set<String> all = new LinkedHashSet<>();
+        if (info.getSuperName() != null) {
+            addWithSupertypes(info.getSuperName(), all, visiting);
+        }
+        for (String intf : info.getInterfaces()) {
+            addWithSupertypes(intf, all, visiting);
+        }
+        known = supertypes.putIfAbsent(type, Collections.unmodifiableSet(all));
+        return known != null ? known : supertypes.get(type);
+    }
+
+    private void addWithSupertypes(String type, Set<String> all, Set<String> visiting) throws IOException {
+        all.add(type);
+        Set<String> more = getSupertypes(type, visiting);
+        if (more != null) {
+            all.addAll(more);
+        }
+    }
+}
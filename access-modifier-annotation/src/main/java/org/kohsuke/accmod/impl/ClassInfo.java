@@ -0,0 +1,217 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * What a class file declares, other than code: its supertypes, access flags, members and annotations.
+ * Instances are immutable. Obtain them from {@link Location#getClassInfo(String)}.
+ *
+ * <p>
+ * Types are internal names such as "a/b/C", and annotations are descriptors such as "La/b/D;".
+ * Annotation values are not kept.
+ */
+public final class ClassInfo {
+    private final String name;
+    private final int access;
+    private final String superName;
+    private final List<String> interfaces;
+    private final List<String> annotations;
+    private final List<Member> fields;
+    private final List<Member> methods;
+
+    private ClassInfo(String name, int access, String superName, List<String> interfaces, List<String> annotations,
+                      List<Member> fields, List<Member> methods) {
+        this.name = name;
+        this.access = access;
+        this.superName = superName;
+        this.interfaces = Collections.unmodifiableList(interfaces);
+        this.annotations = Collections.unmodifiableList(annotations);
+        this.fields = Collections.unmodifiableList(fields);
+        this.methods = Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * Reads everything but the code of the given class.
+     */
+    public static ClassInfo read(ClassReader cr) {
+        final List<String> annotations = new ArrayList<>();
+        final List<Member> fields = new ArrayList<>();
+        final List<Member> methods = new ArrayList<>();
+        cr.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                annotations.add(desc);
+                return null;
+            }
+
+            @Override
+            public FieldVisitor visitField(final int access, final String name, final String desc, String signature, Object value) {
+                final List<String> memberAnnotations = new ArrayList<>();
+                return new FieldVisitor(Opcodes.ASM9) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+                        memberAnnotations.add(annotation);
+                        return null;
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        fields.add(new Member(name, desc, access, memberAnnotations));
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(final int access, final String name, final String desc, String signature, String[] exceptions) {
+                final List<String> memberAnnotations = new ArrayList<>();
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+                        memberAnnotations.add(annotation);
+                        return null;
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        methods.add(new Member(name, desc, access, memberAnnotations));
+                    }
+                };
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return new ClassInfo(cr.getClassName(), cr.getAccess(), cr.getSuperName(),
+                Arrays.asList(cr.getInterfaces()), annotations, fields, methods);
+    }
+
+    /**
+     * Internal name of this class.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Access flags, as in {@link Opcodes#ACC_PUBLIC} and so on.
+     */
+    public int getAccess() {
+        return access;
+    }
+
+    /**
+     * Internal name of the direct superclass, or null for {@code java/lang/Object} and {@code module-info}.
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * Internal names of the directly implemented interfaces.
+     */
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Descriptors of the annotations on this class, visible at runtime or not.
+     */
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Declared fields, in the class file order.
+     */
+    public List<Member> getFields() {
+        return fields;
+    }
+
+    /**
+     * Declared methods and constructors, in the class file order.
+     */
+    public List<Member> getMethods() {
+        return methods;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * A declared field or method.
+     */
+    public static final class Member {
+        private final String name;
+        private final String descriptor;
+        private final int access;
+        private final List<String> annotations;
+
+        Member(String name, String descriptor, int access, List<String> annotations) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.access = access;
+            this.annotations = Collections.unmodifiableList(annotations);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Type descriptor of a field, such as "I", or method descriptor, such as "(I)V".
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Access flags, as in {@link Opcodes#ACC_PUBLIC} and so on.
+         */
+        public int getAccess() {
+            return access;
+        }
+
+        /**
+         * Descriptors of the annotations on this member, visible at runtime or not.
+         */
+        public List<String> getAnnotations() {
+            return annotations;
+        }
+
+        @Override
+        public String toString() {
+            return name + descriptor;
+        }
+    }
+}
@@ -23,6 +23,7 @@
  */
 package org.kohsuke.accmod.impl;
 
+import java.io.IOException;
 import org.kohsuke.accmod.AccessRestriction;
 
 /**
@@ -70,9 +71,8 @@ public interface Location {
      *
      * <p>
      * Loading a class has a side effect, so it's generally not recommended
-     * to do so, but the caller can use {@link ClassLoader#getResource(String)}
-     * and parse the class files via libraries like ASM to define more elaborate
-     * access restrictions.
+     * to do so. To define more elaborate access restrictions, use {@link #getClassInfo(String)},
+     * which is cached, rather than parsing the class files found by {@link ClassLoader#getResource(String)}.
      */
     ClassLoader getDependencyClassLoader();
 
@@ -81,4 +81,31 @@ public interface Location {
      */
     /*@CheckForNull*/ String getProperty(String key);
 
+    /**
+     * Supertypes of the classes in {@link #getDependencyClassLoader()}, which {@link AccessRestriction}
+     * implementations should use rather than parsing class files themselves.
+     *
+     * <p>
+     * Implementations should return the same instance every time, as the checker does for all the locations it checks,
+     * so that each class file is read only once. This default, which is only there for implementations written before
+     * this method existed, creates a new instance on every call and so reads the class files again every time.
+     */
+    default ClassHierarchy getClassHierarchy() {
+        return new ClassHierarchy(getDependencyClassLoader());
+    }
+
+    /**
+     * Obtains what a class declares, from {@link #getDependencyClassLoader()} or the class being inspected.
+     *
+     * @param type
+     *      Internal name of the class, such as "a/b/C".
+     * @return
+     *      null if the class file cannot be found.
+     * @throws IOException
+     *      if the class file cannot be read.
+     */
+    default ClassInfo getClassInfo(String type) throws IOException {
+        return getClassHierarchy().getClassInfo(type);
+    }
+
 }
@@ -0,0 +1,331 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import org.kohsuke.accmod.AccessRestriction;
+import org.kohsuke.accmod.Restricted;
+
+/**
+ * Writes {@value #MANIFEST}, which lists every element annotated with {@link Restricted}
+ * together with its {@link AccessRestriction}s, so that the checker does not have to parse
+ * the class files to find them.
+ *
+ * <p>
+ * Each line is a key, a tab, and the comma-separated class names of the restrictions.
+ * The key is the internal name of the type, optionally followed by {@code '.'} and a field name,
+ * or by {@code '.'}, a method name and a method descriptor, just like the keys the checker uses.
+ *
+ * <p>
+ * A type is listed either with all of its restricted elements, or not at all;
+ * the latter happens when something cannot be described reliably from the source
+ * (for example local classes or record components), in which case the checker falls back
+ * to reading the class file.
+ *
+ * <p>
+ * The processor is not registered as a service, so that it does not run in every compilation
+ * that has this library on the classpath; it has to be named with {@code -processor}, next to
+ * the annotation indexer that lists the restricted classes.
+ */
+@SupportedAnnotationTypes("org.kohsuke.accmod.Restricted")
+public class RestrictionManifestProcessor extends AbstractProcessor {
+    /**
+     * Location of the manifest in the class output.
+     */
+    public static final String MANIFEST = "META-INF/accmod/restrictions.idx";
+
+    /**
+     * From the key to the restrictions, of all the types seen in this compilation.
+     */
+    private final Map<String, String> entries = new TreeMap<>();
+
+    /**
+     * Types that have restricted elements which could not be described.
+     */
+    private final Set<String> undescribable = new HashSet<>();
+
+    /**
+     * Binary names of the top-level types compiled in this compilation.
+     */
+    private final Set<String> compiled = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element e : roundEnv.getRootElements()) {
+            if (e instanceof TypeElement) {
+                compiled.add(binaryName((TypeElement) e));
+            }
+        }
+        for (Element e : roundEnv.getElementsAnnotatedWith(Restricted.class)) {
+            TypeElement owner = enclosingType(e);
+            if (owner == null) {
+                continue; // packages, for example, which the checker does not look at either
+            }
+            String ownerName = binaryName(owner).replace('.', '/');
+            try {
+                entries.put(key(e, owner, ownerName), restrictions(e));
+            } catch (UndescribableException x) {
+                undescribable.add(ownerName);
+            }
+        }
+        if (roundEnv.processingOver()) {
+            try {
+                write();
+            } catch (IOException x) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Failed to write " + MANIFEST + ": " + x);
+            }
+        }
+        return false;
+    }
+
+    private void write() throws IOException {
+        Map<String, String> all = new TreeMap<>();
+        // incremental compilation: keep what was written before for the types that were not compiled this time
+        try {
+            FileObject old = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", MANIFEST);
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(old.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab < 0) {
+                        continue;
+                    }
+                    String key = line.substring(0, tab);
+                    String owner = owner(key).replace('/', '.');
+                    if (!isCompiled(owner) && exists(owner)) {
+                        all.put(key, line.substring(tab + 1));
+                    }
+                }
+            }
+        } catch (FileNotFoundException | NoSuchFileException x) {
+            // nothing written before
+        } catch (IOException | IllegalArgumentException x) {
+            // cannot be read back; only the types of this compilation will be listed
+        }
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            if (!undescribable.contains(owner(e.getKey()))) {
+                all.put(e.getKey(), e.getValue());
+            }
+        }
+        if (all.isEmpty()) {
+            return;
+        }
+
+        FileObject f = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MANIFEST);
+        try (Writer w = new OutputStreamWriter(f.openOutputStream(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> e : all.entrySet()) {
+                w.write(e.getKey() + '\t' + e.getValue() + '\n');
+            }
+        }
+    }
+
+    /**
+     * The type part of a key.
+     */
+    private static String owner(String key) {
+        int dot = key.indexOf('.');
+        return dot < 0 ? key : key.substring(0, dot);
+    }
+
+    /**
+     * Whether the type of the given binary name, or the top-level type that it is nested in, is compiled in this compilation.
+     * As {@code '$'} may also be a part of a name, every prefix that ends before one is tried.
+     */
+    private boolean isCompiled(String binaryName) {
+        for (int i = binaryName.indexOf('$'); i >= 0; i = binaryName.indexOf('$', i + 1)) {
+            if (compiled.contains(binaryName.substring(0, i))) {
+                return true;
+            }
+        }
+        return compiled.contains(binaryName);
+    }
+
+    /**
+     * Whether the type of the given binary name still exists.
+     */
+    private boolean exists(String binaryName) {
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement t = elements.getTypeElement(binaryName);
+        for (int i = binaryName.indexOf('$'); t == null && i >= 0; i = binaryName.indexOf('$', i + 1)) {
+            t = elements.getTypeElement(binaryName.substring(0, i));
+        }
+        // from the top-level type down to the nested one
+        while (t != null && !binaryName(t).equals(binaryName)) {
+            TypeElement nested = null;
+            for (Element m : t.getEnclosedElements()) {
+                if (m instanceof TypeElement) {
+                    String name = binaryName((TypeElement) m);
+                    if (binaryName.equals(name) || binaryName.startsWith(name + '$')) {
+                        nested = (TypeElement) m;
+                        break;
+                    }
+                }
+            }
+            t = nested;
+        }
+        return t != null;
+    }
+
+    private static TypeElement enclosingType(Element e) {
+        while (e != null && !(e instanceof TypeElement)) {
+            e = e.getEnclosingElement();
+        }
+        return (TypeElement) e;
+    }
+
+    private String binaryName(TypeElement t) {
+        return processingEnv.getElementUtils().getBinaryName(t).toString();
+    }
+
+    private String key(Element e, TypeElement owner, String ownerName) throws UndescribableException {
+        for (Element o = owner; o instanceof TypeElement; o = o.getEnclosingElement()) {
+            NestingKind n = ((TypeElement) o).getNestingKind();
+            if (n == NestingKind.LOCAL || n == NestingKind.ANONYMOUS) {
+                throw new UndescribableException(); // constructors capture variables, names are compiler-generated
+            }
+        }
+        switch (e.getKind()) {
+        case CLASS:
+        case INTERFACE:
+        case ENUM:
+        case ANNOTATION_TYPE:
+            return ownerName;
+        case FIELD:
+        case ENUM_CONSTANT:
+            return ownerName + '.' + e.getSimpleName();
+        case METHOD:
+            return ownerName + '.' + e.getSimpleName() + descriptor((ExecutableElement) e, owner);
+        case CONSTRUCTOR:
+            return ownerName + ".<init>" + descriptor((ExecutableElement) e, owner);
+        default:
+            // records and their components, for example, whose annotations end up on generated members
+            throw new UndescribableException();
+        }
+    }
+
+    private String descriptor(ExecutableElement m, TypeElement owner) throws UndescribableException {
+        StringBuilder b = new StringBuilder("(");
+        if (m.getKind() == ElementKind.CONSTRUCTOR) {
+            if (owner.getKind() == ElementKind.ENUM) {
+                b.append("Ljava/lang/String;I"); // name and ordinal
+            } else if (owner.getNestingKind() == NestingKind.MEMBER && owner.getKind() == ElementKind.CLASS
+                    && !owner.getModifiers().contains(Modifier.STATIC)) {
+                b.append(descriptor(owner.getEnclosingElement().asType())); // outer instance
+            }
+        }
+        for (VariableElement p : m.getParameters()) {
+            b.append(descriptor(p.asType()));
+        }
+        b.append(')');
+        b.append(m.getKind() == ElementKind.CONSTRUCTOR ? "V" : descriptor(m.getReturnType()));
+        return b.toString();
+    }
+
+    private String descriptor(TypeMirror t) throws UndescribableException {
+        t = processingEnv.getTypeUtils().erasure(t);
+        switch (t.getKind()) {
+        case BOOLEAN: return "Z";
+        case BYTE: return "B";
+        case CHAR: return "C";
+        case SHORT: return "S";
+        case INT: return "I";
+        case LONG: return "J";
+        case FLOAT: return "F";
+        case DOUBLE: return "D";
+        case VOID: return "V";
+        case ARRAY:
+            return "[" + descriptor(((ArrayType) t).getComponentType());
+        case DECLARED:
+            return "L" + binaryName((TypeElement) ((DeclaredType) t).asElement()).replace('.', '/') + ";";
+        default:
+            throw new UndescribableException();
+        }
+    }
+
+    /**
+     * The class names of the restrictions in the {@link Restricted} annotation of the given element.
+     */
+    private String restrictions(Element e) throws UndescribableException {
+        for (AnnotationMirror a : e.getAnnotationMirrors()) {
+            if (!((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(Restricted.class.getName())) {
+                continue;
+            }
+            List<String> names = new ArrayList<>();
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> v : a.getElementValues().entrySet()) {
+                Object value = v.getValue().getValue();
+                for (Object o : value instanceof List ? (List<?>) value : List.of(v.getValue())) {
+                    Object type = ((AnnotationValue) o).getValue();
+                    if (!(type instanceof DeclaredType)) {
+                        throw new UndescribableException(); // unresolved class, for example
+                    }
+                    names.add(binaryName((TypeElement) ((DeclaredType) type).asElement()));
+                }
+            }
+            return String.join(",", names);
+        }
+        throw new UndescribableException();
+    }
+
+    private static final class UndescribableException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -25,24 +25,20 @@
 package org.kohsuke.accmod.restrictions;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.annotation.Inherited;
-import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
 
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.impl.ErrorListener;
 import org.kohsuke.accmod.impl.Location;
 import org.kohsuke.accmod.impl.RestrictedElement;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.Opcodes;
 
 /**
  * A method which may be implemented/overridden from anywhere, including {@code super} calls, but may not be otherwise called outside the source module.
  * Akin to using the {@code protected} modifier but allowing “package” access elsewhere in the same package root, and also supporting interface methods.
  * Note that {@link Restricted} is not {@link Inherited} so this only protects attempted accesses via the defining type;
  * you will generally also want to restrict the implementations (for example as {@link DoNotUse}).
+ * The caller may be a direct or indirect subtype of the defining type.
  * @since FIXME
  */
 public class ProtectedExternally extends None {
@@ -52,30 +48,20 @@ public class ProtectedExternally extends None {
         if (target.isInTheInspectedModule()) {
             return;
         }
-        try (InputStream is = loc.getDependencyClassLoader().getResourceAsStream(loc.getClassName().replace('.', '/') + ".class")) {
-            if (is == null) {
-                errorListener.onError(null, loc, "could not find class");
-                return;
-            }
-            ClassReader cr = new ClassReader(is);
-            final AtomicBoolean ok = new AtomicBoolean();
-            final String supe = target.toString().replaceFirst("[.].+$", "");
-            cr.accept(new ClassVisitor(Opcodes.ASM9) {
-                @Override
-                public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-                    // TODO traverse supertype hierarchy recursively
-                    if (supe.equals(superName) || interfaces != null && Arrays.asList(interfaces).contains(supe)) {
-                        ok.set(true);
-                    }
-                }
-            }, ClassReader.SKIP_FRAMES);
-            if (ok.get()) {
-                return;
-            }
+        Set<String> supertypes;
+        try {
+            supertypes = loc.getClassHierarchy().getSupertypes(loc.getClassName().replace('.', '/'));
         } catch (IOException x) {
             errorListener.onError(x, loc, "cannot inspect caller");
             return;
         }
+        if (supertypes == null) {
+            errorListener.onError(null, loc, "could not find class");
+            return;
+        }
+        if (supertypes.contains(target.toString().replaceFirst("[.].+$", ""))) {
+            return;
+        }
         errorListener.onError(null, loc, target + " must not be called except as if protected");
     }
 
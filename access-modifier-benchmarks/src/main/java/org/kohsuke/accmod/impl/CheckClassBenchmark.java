@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Checker#checkClass(File)} on classes of different shapes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckClassBenchmark {
+    /**
+     * <dl>
+     * <dt>jdkOnly<dd>a class that only uses JDK types, which does not need to be visited
+     * <dt>typical<dd>ten methods with thirty uses each
+     * <dt>heavy<dd>twenty methods with a thousand uses each
+     * </dl>
+     */
+    @Param({"jdkOnly", "typical", "heavy"})
+    public String shape;
+
+    private File dir;
+    private File classFile;
+    private Checker checker;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("accmod-bench").toFile();
+        File api = new File(dir, "api");
+        SyntheticModule.writeApi(api, 100, 10);
+        checker = SyntheticModule.checker(SyntheticModule.readApi(api));
+
+        File callers = new File(dir, "callers");
+        switch (shape) {
+        case "jdkOnly":
+            classFile = SyntheticModule.writeCaller(callers, "bench/caller/JdkOnly", 10, 30, 0);
+            break;
+        case "typical":
+            classFile = SyntheticModule.writeCaller(callers, "bench/caller/Typical", 10, 30, 100);
+            break;
+        case "heavy":
+            classFile = SyntheticModule.writeCaller(callers, "bench/caller/Heavy", 20, 1000, 100);
+            break;
+        default:
+            throw new IllegalArgumentException(shape);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticModule.delete(dir);
+    }
+
+    @Benchmark
+    public void checkClass() throws IOException {
+        checker.checkClass(classFile);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.kohsuke.accmod.restrictions.DoNotUse;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.objectweb.asm.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looking up the restrictions that apply to a single use, as done for every instruction that is visited.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private final RestrictionTable table = new RestrictionTable();
+    private final Set<Type> none = Collections.emptySet();
+    private final Set<Type> skipped = Collections.singleton(Type.getObjectType("bench/api/Other"));
+
+    @Setup
+    public void setUp() throws IOException {
+        File dir = Files.createTempDirectory("accmod-bench").toFile();
+        try {
+            SyntheticModule.writeApi(dir, 1000, 10);
+            for (Map.Entry<String, List<String>> e : SyntheticModule.readApi(dir).getRestrictions().entrySet()) {
+                String key = e.getKey();
+                Restrictions r = new Restrictions(new RestrictedElement() {
+                    @Override
+                    public boolean isInTheInspectedModule() {
+                        return false;
+                    }
+
+                    @Override
+                    public String toString() {
+                        return key;
+                    }
+                });
+                r.add(e.getValue().contains(DoNotUse.class.getName()) ? new DoNotUse() : new NoExternalUse());
+                table.put(key, r);
+            }
+        } finally {
+            SyntheticModule.delete(dir);
+        }
+        table.mayApplyTo("bench/api/Api0"); // resolve before measuring
+    }
+
+    @Benchmark
+    public List<Restrictions> methodHit() {
+        return table.forMethod("bench/api/Api1", "m0", "()V", none);
+    }
+
+    @Benchmark
+    public List<Restrictions> methodMissOnRestrictedType() {
+        return table.forMethod("bench/api/Api1", "free", "()V", none);
+    }
+
+    @Benchmark
+    public List<Restrictions> methodMissOnJdkType() {
+        return table.forMethod("java/lang/String", "trim", "()Ljava/lang/String;", none);
+    }
+
+    @Benchmark
+    public List<Restrictions> methodInNestedType() {
+        return table.forMethod("bench/api/Api0$Nested", "free", "()V", none);
+    }
+
+    @Benchmark
+    public List<Restrictions> methodWithSuppression() {
+        return table.forMethod("bench/api/Api1", "m0", "()V", skipped);
+    }
+
+    @Benchmark
+    public List<Restrictions> fieldHit() {
+        return table.forField("bench/api/Api1", "f0", none);
+    }
+
+    @Benchmark
+    public List<Restrictions> typeMiss() {
+        return table.forType("java/lang/StringBuilder", none);
+    }
+
+    @Benchmark
+    public boolean prescanMiss() {
+        return table.mayApplyTo("java/util/ArrayList");
+    }
+}
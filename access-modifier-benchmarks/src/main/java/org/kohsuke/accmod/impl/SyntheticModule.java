@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.kohsuke.accmod.AccessRestriction;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.DoNotUse;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates restricted APIs and classes that use them, with ASM, so that the benchmarks
+ * need nothing but this module.
+ *
+ * <p>
+ * The API consists of types {@code bench/api/Api0}, {@code bench/api/Api1}, ..., each with
+ * an unrestricted static method {@code free()V}, restricted static methods {@code m0()V}, {@code m1()V}, ...
+ * and restricted fields {@code f0}, {@code f1}, .... Every tenth type is itself {@link DoNotUse},
+ * which applies to its nested type {@code Nested} as well.
+ */
+final class SyntheticModule {
+    static final ErrorListener IGNORE = new ErrorListener() {
+        @Override
+        public void onError(Throwable t, Location loc, String msg) {
+        }
+
+        @Override
+        public void onWarning(Throwable t, Location loc, String msg) {
+        }
+    };
+
+    /**
+     * Debug logging is off, like in a normal build.
+     */
+    static final Log LOG = new SystemStreamLog();
+
+    private static final String RESTRICTED = Type.getDescriptor(Restricted.class);
+
+    private SyntheticModule() {
+    }
+
+    static String api(int i) {
+        return "bench/api/Api" + i;
+    }
+
+    /**
+     * Writes the API into the given class directory, along with the annotation index.
+     */
+    static void writeApi(File dir, int types, int membersPerType) throws IOException {
+        List<String> index = new ArrayList<>();
+        for (int i = 0; i < types; i++) {
+            String name = api(i);
+            boolean restrictedType = i % 10 == 0;
+
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+            if (restrictedType) {
+                restrict(cw.visitAnnotation(RESTRICTED, true), DoNotUse.class);
+                cw.visitInnerClass(name + "$Nested", name, "Nested", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+            }
+            emptyMethod(cw, "free");
+            for (int j = 0; j < membersPerType; j++) {
+                MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m" + j, "()V", null, null);
+                restrict(mv.visitAnnotation(RESTRICTED, true), j % 2 == 0 ? NoExternalUse.class : DoNotUse.class);
+                mv.visitCode();
+                mv.visitInsn(Opcodes.RETURN);
+                mv.visitMaxs(0, 0);
+                mv.visitEnd();
+                restrict(cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "f" + j, "I", null, null)
+                        .visitAnnotation(RESTRICTED, true), NoExternalUse.class);
+            }
+            cw.visitEnd();
+            write(dir, name, cw.toByteArray());
+            index.add(name.replace('/', '.'));
+
+            if (restrictedType) {
+                cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+                cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name + "$Nested", null, "java/lang/Object", null);
+                emptyMethod(cw, "free");
+                cw.visitEnd();
+                write(dir, name + "$Nested", cw.toByteArray());
+            }
+        }
+        File list = new File(dir, RestrictionIndex.INDEX);
+        Files.createDirectories(list.getParentFile().toPath());
+        Files.write(list.toPath(), index, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a class with the given number of methods, each with the given number of uses of other types.
+     * Most uses are of JDK types, one in fifty is an unrestricted API method,
+     * and the last one of each method is a restricted API method.
+     *
+     * @param apiTypes
+     *      Number of API types to use, or 0 to only use JDK types.
+     */
+    static File writeCaller(File dir, String name, int methods, int usesPerMethod, int apiTypes) throws IOException {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        int line = 1;
+        for (int m = 0; m < methods; m++) {
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "run" + m, "()V", null, null);
+            mv.visitCode();
+            for (int u = 0; u < usesPerMethod; u++) {
+                if (u % 3 == 0) {
+                    Label l = new Label();
+                    mv.visitLabel(l);
+                    mv.visitLineNumber(line++, l);
+                }
+                if (apiTypes > 0 && u == usesPerMethod - 1) {
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, api(u % apiTypes), "m0", "()V", false);
+                } else if (apiTypes > 0 && u % 50 == 49) {
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, api(u % apiTypes), "free", "()V", false);
+                } else if (u % 3 == 0) {
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+                    mv.visitInsn(Opcodes.POP2);
+                } else if (u % 3 == 1) {
+                    mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+                    mv.visitInsn(Opcodes.POP);
+                } else {
+                    mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+                    mv.visitInsn(Opcodes.POP);
+                }
+            }
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+        return write(dir, name, cw.toByteArray());
+    }
+
+    private static void emptyMethod(ClassWriter cw, String name) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, name, "()V", null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void restrict(AnnotationVisitor av, Class<? extends AccessRestriction> restriction) {
+        AnnotationVisitor value = av.visitArray("value");
+        value.visit(null, Type.getType(restriction));
+        value.visitEnd();
+        av.visitEnd();
+    }
+
+    private static File write(File dir, String internalName, byte[] bytes) throws IOException {
+        File f = new File(dir, internalName + ".class");
+        Files.createDirectories(f.getParentFile().toPath());
+        Files.write(f.toPath(), bytes);
+        return f;
+    }
+
+    static void delete(File dir) throws IOException {
+        if (!dir.exists()) {
+            return;
+        }
+        Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Reads the restrictions of the API written by {@link #writeApi(File, int, int)}.
+     */
+    static RestrictionIndex readApi(File dir) throws IOException {
+        try (ClassPath cp = new ClassPath(List.of(dir), SyntheticModule.class.getClassLoader())) {
+            return RestrictionIndex.read(cp.getContainer(dir));
+        }
+    }
+
+    /**
+     * Creates a checker that knows the restrictions of the API written by {@link #writeApi(File, int, int)}.
+     */
+    static Checker checker(RestrictionIndex api) throws IOException {
+        Checker checker = new Checker(SyntheticModule.class.getClassLoader(), IGNORE, new Properties(), LOG, false);
+        checker.loadRestrictions(api, false);
+        return checker;
+    }
+}
@@ -0,0 +1,6 @@
+assert new File(basedir, 'target/access-modifier-checker.state').isFile()
+def log = new File(basedir, 'build.log').text
+// the second build reuses the results of every class, and reports the same problems as the first
+assert log.contains('Checked 5 classes (0 skipped, 0 reused)')
+assert log.contains('Checked 5 classes (0 skipped, 5 reused)')
+assert log.count('[WARNING] User:3 SomeClass must not be used') == 6
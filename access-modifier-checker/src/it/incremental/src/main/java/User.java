@@ -0,0 +1,5 @@
+public class User {
+  public int use() {
+    return new SomeClass().getFoo();
+  }
+}
@@ -0,0 +1,4 @@
+def log = new File(basedir, 'build.log').text
+// javac reports the use while compiling, only as a warning because of --warn-only, and then the mojo reports it again
+assert log.readLines().any { it.contains('Caller.java:[8,') && it.contains('api/Api.notReallyPublic()V must not be used') }
+assert log.contains('[ERROR] caller/Caller:8 api/Api.notReallyPublic()V must not be used')
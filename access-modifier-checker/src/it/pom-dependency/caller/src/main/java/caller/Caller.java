@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class Caller {
+
+    public Caller() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
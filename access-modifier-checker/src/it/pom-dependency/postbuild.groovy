@@ -0,0 +1,4 @@
+def log = new File(basedir, 'build.log').text
+// the POM of the dependency is on the classpath, but only the jar files are read
+assert log.contains('[ERROR] caller/Caller:8 api/Api.notReallyPublic()V must not be used')
+assert !log.contains('ZipException')
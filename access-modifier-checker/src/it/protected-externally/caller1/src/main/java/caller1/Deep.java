@@ -0,0 +1,12 @@
+package caller1;
+
+import api.Api;
+
+public class Deep extends Caller1 {
+
+    void y() {
+        Api x = this;
+        x.notReallyPublic(); // OK since we indirectly implement the type
+    }
+
+}
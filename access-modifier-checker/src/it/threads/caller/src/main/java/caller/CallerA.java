@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class CallerA {
+
+    public CallerA() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class CallerB {
+
+    public CallerB() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
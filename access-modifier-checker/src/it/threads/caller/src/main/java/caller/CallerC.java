@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class CallerC {
+
+    public CallerC() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
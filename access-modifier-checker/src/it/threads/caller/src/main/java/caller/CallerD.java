@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class CallerD {
+
+    public CallerD() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
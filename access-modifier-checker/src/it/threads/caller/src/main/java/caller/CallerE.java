@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class CallerE {
+
+    public CallerE() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
@@ -0,0 +1,11 @@
+package caller;
+
+import api.Api;
+
+public class CallerF {
+
+    public CallerF() {
+        Api.notReallyPublic(); // illegal
+    }
+
+}
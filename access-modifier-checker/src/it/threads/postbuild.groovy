@@ -0,0 +1,2 @@
+def errors = new File(basedir, 'build.log').readLines().findAll { it.startsWith('[ERROR] caller/') }
+assert errors == ['', 'A', 'B', 'C', 'D', 'E', 'F'].collect { "[ERROR] caller/Caller${it}:8 api/Api.notReallyPublic()V must not be used".toString() }
@@ -23,17 +23,33 @@
  */
 package org.kohsuke.accmod.impl;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.apache.maven.plugin.logging.Log;
 import org.kohsuke.accmod.AccessRestriction;
 import org.kohsuke.accmod.Restricted;
-import org.kohsuke.accmod.impl.Restrictions.Parser;
 import org.kohsuke.accmod.restrictions.suppressions.SuppressRestrictedWarnings;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -43,14 +59,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import org.jvnet.hudson.annotation_indexer.Index;
 
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
 import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
 
 /**
@@ -75,54 +97,428 @@ public class Checker {
     /**
      * Restrictions found from dependencies.
      * <p>
-     * The string is either:
+     * They are keyed by a string that is either:
      * <ul>
      * <li>internal name of a type
      * <li>internal name of a type + '.' + field name
      * <li>internal name of a type + '.' + method name + method descriptor
      * </ul>
      */
-    private final Map<String,Restrictions> restrictions = new HashMap<>();
+    private RestrictionTable restrictions = new RestrictionTable();
 
     private final AccessRestrictionFactory factory;
 
-    private final Log log;
+    /**
+     * Shared by all the classes checked, so that each class file is read for its supertypes only once.
+     */
+    private ClassHierarchy hierarchy;
+
+    private final Logger log;
+
+    /**
+     * Number of threads used by {@link #check(File)}.
+     */
+    private int threads = 1;
+
+    /**
+     * If non-null, results of unchanged class files are taken from here instead of checking them again.
+     */
+    private IncrementalState incrementalState;
+
+    private final ScanMetrics metrics = new ScanMetrics();
+
+    /**
+     * If non-null, every use of a restricted element is recorded here.
+     */
+    private UsageIndex usages;
+
+    /**
+     * See {@link #setLineNumbersOnDemand(boolean)}.
+     */
+    private boolean lineNumbersOnDemand;
+
+    /**
+     * If non-null, which class files {@link #check(File)} checks in a directory.
+     */
+    private ClassFileFilter filter;
 
-    private int line;
+    /**
+     * Problems found while creating {@linkplain #loadRestrictionsLazily(RestrictionIndex, boolean) deferred}
+     * restrictions, by the internal name of the type. These are found on whichever thread first needs the type,
+     * so they are kept here and reported in the order of the types once a check is done.
+     */
+    private final Map<String, RecordingErrorListener> deferredProblems = new ConcurrentSkipListMap<>();
+
+    /**
+     * Where each thread reads the class files it checks, so that they do not each need a new array.
+     */
+    private final ThreadLocal<ClassFileBuffer> buffers = ThreadLocal.withInitial(ClassFileBuffer::new);
 
     public Checker(ClassLoader dependencies, ErrorListener errorListener, Properties properties,
             Log log) throws IOException {
+        this(dependencies, errorListener, properties, log, true);
+    }
+
+    /**
+     * @param loadDependencies
+     *      If false, restrictions are not loaded from {@code dependencies} up front,
+     *      and the caller is expected to load them, for example one jar at a time.
+     */
+    public Checker(ClassLoader dependencies, ErrorListener errorListener, Properties properties,
+            Log log, boolean loadDependencies) throws IOException {
+        this(dependencies, errorListener, properties, new MavenLogger(log), loadDependencies);
+    }
+
+    /**
+     * Like {@link #Checker(ClassLoader, ErrorListener, Properties, Log, boolean)},
+     * for use without the Maven API.
+     */
+    Checker(ClassLoader dependencies, ErrorListener errorListener, Properties properties,
+            Logger log, boolean loadDependencies) throws IOException {
         this.dependencies = dependencies;
         this.errorListener = errorListener;
         this.properties = properties;
         this.factory = new AccessRestrictionFactory(dependencies);
+        this.hierarchy = new ClassHierarchy(dependencies);
         this.log = log;
 
-        // load access restrictions
-        loadAccessRestrictions();
+        if (loadDependencies) {
+            // load access restrictions
+            loadAccessRestrictions();
+        }
     }
 
     public ErrorListener getErrorListener() {
         return errorListener;
     }
 
+    Properties getProperties() {
+        return properties;
+    }
+
+    ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the number of threads used to check class files in {@link #check(File)}.
+     * Zero or less means one thread per available processor.
+     * With more than one, class files are read ahead by other threads, virtual ones if the JDK has them.
+     * <p>
+     * Errors are reported in the same order regardless of this setting.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Replaces the {@link ClassHierarchy} given to restrictions, which must read from {@link #dependencies}.
+     * Call this before checking anything.
+     */
+    void setClassHierarchy(ClassHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * The {@link ClassHierarchy} given to restrictions, which results replayed later should give them too.
+     */
+    ClassHierarchy getClassHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Records every use of a restricted element from the classes checked from now on, allowed or not,
+     * into the given index. Results taken from {@link #setIncrementalState(IncrementalState)} have no uses.
+     */
+    void setUsageIndex(UsageIndex usages) {
+        this.usages = usages;
+    }
+
+    /**
+     * If true, class files are first checked without their debug information, which is most of the work
+     * of reading them, and only those with errors or warnings are checked again with it, to report line numbers.
+     * What is reported is the same either way, unless a restriction decides on the line number.
+     * This is not done while a {@link #setUsageIndex(UsageIndex) usage index} is recorded, as it needs every line.
+     */
+    void setLineNumbersOnDemand(boolean lineNumbersOnDemand) {
+        this.lineNumbersOnDemand = lineNumbersOnDemand;
+    }
+
+    /**
+     * Limits the class files that {@link #check(File)} checks in a directory.
+     */
+    void setFilter(ClassFileFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Reuses the results of class files that have not changed since the given state was saved,
+     * and records the results of the others into it.
+     */
+    void setIncrementalState(IncrementalState incrementalState) {
+        this.incrementalState = incrementalState;
+    }
+
+    /**
+     * Also looks up restrictions in the given table, which has the restrictions of dependencies that other checkers
+     * share, so that they are loaded only once. The restrictions loaded into this checker are kept apart from them.
+     * Call this before loading any restrictions.
+     */
+    void setSharedRestrictions(RestrictionTable shared) {
+        restrictions = new RestrictionTable(shared);
+    }
+
+    /**
+     * The restrictions loaded so far, for checks that look at something else than class files.
+     */
+    RestrictionTable getRestrictionTable() {
+        return restrictions;
+    }
+
+    /**
+     * {@link #getErrorListener()}, also recording {@link ViolationEvent}s, for violations found by other means.
+     */
+    ErrorListener getReporter() {
+        return ViolationEvent.recording(errorListener);
+    }
+
+    /**
+     * Feeds the loaded restrictions into the given digest, so that a change in them can be detected.
+     */
+    void digestRestrictions(MessageDigest digest) {
+        restrictions.digest(digest);
+    }
+
     /**
      * Checks a single class file or a directory full of class files (recursively.)
      */
     public void check(File f) throws IOException {
-        if (f.isDirectory()) {
-            File[] files = f.listFiles();
-            if (files == null) {
-                throw new IllegalArgumentException("Directory " + f.getName() + " is empty when it should not be");
+        long start = System.nanoTime();
+        try {
+            checkAll(f);
+        } finally {
+            metrics.checkNanos.add(System.nanoTime() - start);
+        }
+        reportDeferredProblems();
+    }
+
+    /**
+     * Checks the class files of a jar file or a class directory in the order of their names,
+     * reading them from where they are.
+     */
+    void check(ClassPath.Container container) throws IOException {
+        long start = System.nanoTime();
+        try {
+            for (String name : container.listClasses()) {
+                try (InputStream in = container.open(name)) {
+                    checkClass(in, errorListener);
+                }
             }
-            for (File c : files) {
-                check(c);
+        } finally {
+            metrics.checkNanos.add(System.nanoTime() - start);
+        }
+        reportDeferredProblems();
+    }
+
+    /**
+     * Reports the problems with deferred restrictions that were found since this was last called, in the order of the types,
+     * so that what is reported does not depend on which class needed them first.
+     */
+    void reportDeferredProblems() {
+        for (Iterator<RecordingErrorListener> it = deferredProblems.values().iterator(); it.hasNext();) {
+            it.next().replay(errorListener);
+            it.remove();
+        }
+    }
+
+    private void checkAll(File f) throws IOException {
+        if (threads <= 1) {
+            List<Path> classes = new ArrayList<>();
+            listClassFiles(f, classes::add);
+            classes.sort(Checker::compareNames);
+            for (Path c : classes) {
+                if (incrementalState == null) {
+                    checkClass(c.toFile());
+                } else {
+                    checkClassRecorded(c.toFile()).replay(errorListener);
+                }
             }
             return;
         }
 
-        if (f.getPath().endsWith(".class"))
-            checkClass(f);
+        // Class files are read by one stage and checked by another, so that waiting for a slow file system
+        // does not hold up the threads that check. Only so many can be read ahead of the checks, as each
+        // needs one of the buffers; they go back once the class file is checked.
+        ExecutorService io = newIoExecutor(threads * BUFFERS_PER_THREAD);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<ClassFileBuffer> free = new ArrayBlockingQueue<>(threads * BUFFERS_PER_THREAD);
+        for (int i = 0; i < threads * BUFFERS_PER_THREAD; i++) {
+            free.add(new ClassFileBuffer());
+        }
+        try {
+            // class files are checked as soon as they are found, and reported in a stable order once all are
+            Map<Path, Future<RecordingErrorListener>> results = new TreeMap<>(Checker::compareNames);
+            listClassFiles(f, c -> results.put(c, CompletableFuture
+                    .supplyAsync(() -> read(c.toFile(), free, pool), io)
+                    .thenCompose(checked -> checked)));
+            for (Future<RecordingErrorListener> r : results.values()) {
+                r.get().replay(errorListener);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while checking " + f, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Failed to check " + f, cause);
+        } finally {
+            io.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Number of class files that can be read ahead of the checks, for each thread that checks.
+     */
+    private static final int BUFFERS_PER_THREAD = 4;
+
+    /**
+     * Virtual threads if the JDK has them, as reading a class file can be mostly waiting for it
+     * on a network file system, or a fixed pool of the given size otherwise.
+     */
+    private static ExecutorService newIoExecutor(int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+
+    /**
+     * The reading stage: takes the results of a class file from {@link #incrementalState},
+     * or reads it into a free buffer and hands it over to the checking stage.
+     */
+    private CompletableFuture<RecordingErrorListener> read(File clazz, BlockingQueue<ClassFileBuffer> free, Executor pool) {
+        RecordingErrorListener reused = reused(clazz);
+        if (reused != null) {
+            return CompletableFuture.completedFuture(reused);
+        }
+        ClassFileBuffer b;
+        try {
+            b = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        try (FileInputStream in = new FileInputStream(clazz)) {
+            b.read(in);
+        } catch (IOException e) {
+            free.add(b);
+            throw new UncheckedIOException(e);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return checkClassRecorded(clazz, b);
+            } finally {
+                free.add(b);
+            }
+        }, pool);
+    }
+
+    /**
+     * Checks a class file, or takes its results from {@link #incrementalState}, without reporting the errors yet.
+     */
+    private RecordingErrorListener checkClassRecorded(File clazz) throws IOException {
+        RecordingErrorListener recorder = reused(clazz);
+        if (recorder == null) {
+            try (FileInputStream in = new FileInputStream(clazz)) {
+                ClassFileBuffer b = buffers.get();
+                b.read(in);
+                recorder = checkClassRecorded(clazz, b);
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * The results of the given class file from {@link #incrementalState}, if they can be used.
+     */
+    private RecordingErrorListener reused(File clazz) {
+        RecordingErrorListener recorder = incrementalState != null ? incrementalState.get(clazz) : null;
+        if (recorder != null) {
+            metrics.classesReused.increment();
+        }
+        return recorder;
+    }
+
+    /**
+     * Checks a class file that was read into the given buffer, without reporting the errors yet.
+     */
+    private RecordingErrorListener checkClassRecorded(File clazz, ClassFileBuffer b) {
+        RecordingErrorListener recorder = new RecordingErrorListener();
+        boolean selfContained = checkClass(b, recorder);
+        if (incrementalState != null && selfContained) {
+            incrementalState.put(clazz, recorder);
+        }
+        return recorder;
+    }
+
+    /**
+     * Finds the class files in a directory that {@link #filter} accepts, in no particular order.
+     * Directories that it skips are not listed.
+     */
+    private void listClassFiles(File f, final Consumer<Path> found) throws IOException {
+        if (!f.isDirectory()) {
+            if (f.getPath().endsWith(".class")) {
+                found.accept(f.toPath());
+            }
+            return;
+        }
+        final Path root = f.toPath();
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (filter != null && !dir.equals(root) && filter.skips(root.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.toString().endsWith(".class")
+                        && (filter == null || filter.accepts(root.relativize(file)))) {
+                    found.accept(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Orders paths like a walk that goes through the entries of each directory sorted by name.
+     * Classes are checked and errors reported in this order, whatever the file system lists first and however many threads are used.
+     */
+    private static int compareNames(Path a, Path b) {
+        int n = Math.min(a.getNameCount(), b.getNameCount());
+        for (int i = 0; i < n; i++) {
+            int c = a.getName(i).toString().compareTo(b.getName(i).toString());
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.getNameCount(), b.getNameCount());
     }
 
     /**
@@ -139,154 +535,347 @@ public class Checker {
      *      This value shows up in {@link RestrictedElement#isInTheInspectedModule()}.
      */
     public void loadRestrictions(ClassLoader cl, final boolean isInTheInspectedModule) throws IOException {
-        for (String className : Index.listClassNames(Restricted.class, cl)) {
-            InputStream is = dependencies.getResourceAsStream(className.replace('.','/') + ".class");
-            if (is==null) {
-                errorListener.onWarning(null,null,"Failed to find class file for "+ className);
-                continue;
-            }
+        long start = System.nanoTime();
+        RestrictionIndex index = RestrictionIndex.read(cl, dependencies);
+        metrics.loadNanos.add(System.nanoTime() - start);
+        loadRestrictions(index, isInTheInspectedModule);
+    }
 
-            try {
-                new ClassReader(is).accept(new ClassVisitor(Opcodes.ASM9) {
-                    private String className;
+    /**
+     * Loads restrictions that were read from a jar file or a class directory.
+     *
+     * @param isInTheInspectedModule
+     *      This value shows up in {@link RestrictedElement#isInTheInspectedModule()}.
+     */
+    void loadRestrictions(RestrictionIndex index, final boolean isInTheInspectedModule) {
+        long start = System.nanoTime();
+        for (String warning : index.getWarnings()) {
+            errorListener.onWarning(null, null, warning);
+        }
+        for (Map.Entry<String, Restrictions> e : createRestrictions(index.getRestrictions(), isInTheInspectedModule, errorListener).entrySet()) {
+            restrictions.put(e.getKey(), e.getValue());
+        }
+        metrics.loadNanos.add(System.nanoTime() - start);
+    }
 
-                    @Override
-                    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-                        this.className = name;
-                    }
+    /**
+     * Like {@link #loadRestrictions(RestrictionIndex, boolean)}, but the restrictions of a type are only created
+     * when a checked class first refers to the type or to a type nested in it.
+     * The classes that {@link RestrictionIndex#readLazily(ClassPath.Container)} left unparsed are parsed only then.
+     * <p>
+     * Problems with the restrictions are then reported at the end of the check in which they are found.
+     */
+    void loadRestrictionsLazily(final RestrictionIndex index, final boolean isInTheInspectedModule) {
+        for (String warning : index.getWarnings()) {
+            errorListener.onWarning(null, null, warning);
+        }
+        Map<String, Map<String, List<String>>> byOwner = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> e : index.getRestrictions().entrySet()) {
+            byOwner.computeIfAbsent(RestrictionTable.owner(e.getKey()), k -> new LinkedHashMap<>()).put(e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, Map<String, List<String>>> e : byOwner.entrySet()) {
+            final Map<String, List<String>> keys = e.getValue();
+            deferRestrictions(e.getKey(), () -> keys, isInTheInspectedModule);
+        }
+        for (final String type : index.getUnparsed()) {
+            restrictions.defer(type, () -> {
+                long start = System.nanoTime();
+                RecordingErrorListener problems = new RecordingErrorListener();
+                try {
+                    return createRestrictions(index.parse(type), isInTheInspectedModule, problems);
+                } catch (IOException x) {
+                    problems.onWarning(x, null, "Failed to read restrictions of " + type.replace('/', '.'));
+                    return Collections.emptyMap();
+                } finally {
+                    deferredProblems(type, problems);
+                    metrics.deferredLoadNanos.add(System.nanoTime() - start);
+                }
+            });
+        }
+    }
 
-                    @Override
-                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                        return onAnnotationFor(className,desc);
-                    }
+    /**
+     * Like {@link #loadRestrictionsLazily(RestrictionIndex, boolean)}, for the restrictions of a single type,
+     * which are found by the given function only when a checked class first refers to the type or to a type nested in it.
+     *
+     * @param found
+     *      Returns the restricted keys of the type and its members, and the class names of the
+     *      {@link AccessRestriction}s placed on them.
+     */
+    void deferRestrictions(final String type, final Supplier<Map<String, List<String>>> found, final boolean isInTheInspectedModule) {
+        restrictions.defer(type, () -> {
+            long start = System.nanoTime();
+            RecordingErrorListener problems = new RecordingErrorListener();
+            try {
+                return createRestrictions(found.get(), isInTheInspectedModule, problems);
+            } finally {
+                deferredProblems(type, problems);
+                metrics.deferredLoadNanos.add(System.nanoTime() - start);
+            }
+        });
+    }
 
-                    @Override
-                    public FieldVisitor visitField(int access, final String name, String desc, String signature, Object value) {
-                        return new FieldVisitor(Opcodes.ASM9) {
-                            @Override
-                            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                                return onAnnotationFor(className+'.'+name,desc);
-                            }
-                        };
-                    }
+    private void deferredProblems(String type, RecordingErrorListener problems) {
+        if (!problems.isEmpty()) {
+            deferredProblems.merge(type, problems, (before, after) -> {
+                after.replay(before);
+                return before;
+            });
+        }
+    }
 
-                    @Override
-                    public MethodVisitor visitMethod(int access, final String methodName, final String methodDesc, String signature, String[] exceptions) {
-                        return new MethodVisitor(Opcodes.ASM9) {
-                            @Override
-                            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                                return onAnnotationFor(className+'.'+methodName+methodDesc,desc);
-                            }
-                        };
-                    }
+    /**
+     * Turns restricted keys and the class names of the {@link AccessRestriction}s placed on them into {@link Restrictions}.
+     */
+    private Map<String, Restrictions> createRestrictions(Map<String, List<String>> found, final boolean isInTheInspectedModule,
+            ErrorListener problems) {
+        Map<String, Restrictions> created = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> e : found.entrySet()) {
+            final String keyName = e.getKey();
+            RestrictedElement target = new RestrictedElement() {
+                @Override
+                public boolean isInTheInspectedModule() {
+                    return isInTheInspectedModule;
+                }
 
-                    /**
-                     * Parse {@link Restricted} annotation on some annotated element.
-                     */
-                    private AnnotationVisitor onAnnotationFor(final String keyName, String desc) {
-                        if (RESTRICTED_DESCRIPTOR.equals(desc)) {
-                            RestrictedElement target = new RestrictedElement() {
-                                @Override
-                                public boolean isInTheInspectedModule() {
-                                    return isInTheInspectedModule;
-                                }
-
-                                @Override
-                                public String toString() { return keyName; }
-                            };
-                            return new Parser(target) {
-                                @Override
-                                public void visitEnd() {
-                                    try {
-                                        restrictions.put(keyName,build(factory));
-                                    } catch (ClassNotFoundException | IllegalAccessException | InstantiationException e) {
-                                        failure(e);
-                                    }
-                                }
-
-                                /**
-                                 * Fails to load a {@link AccessRestriction} instance.
-                                 */
-                                private void failure(Exception e) {
-                                    errorListener.onError(e,null,"Failed to load restrictions");
-                                }
-                            };
-                        }
-                        return null;
-                    }
-                }, ClassReader.SKIP_CODE);
-            } finally {
-                is.close();
+                @Override
+                public String toString() { return keyName; }
+            };
+            try {
+                Restrictions r = new Restrictions(target);
+                for (String type : e.getValue()) {
+                    r.add(factory.get(Type.getObjectType(type.replace('.', '/'))));
+                }
+                created.put(keyName, r);
+                metrics.restrictionsLoaded.increment();
+            } catch (ClassNotFoundException | IllegalAccessException | InstantiationException x) {
+                problems.onError(x, null, "Failed to load restrictions");
             }
         }
+        return created;
     }
 
     /**
      * Inspects a class for the restriction violations.
      */
     public void checkClass(File clazz) throws IOException {
+        checkClass(clazz, errorListener);
+    }
+
+    /**
+     * Inspects a class for the restriction violations, reporting them to the given listener.
+     * {@link ViolationEvent}s are recorded here, as they are found, and not when recorded results are replayed.
+     * <p>
+     * All the state of a check lives in the visitors created here, so this can be called concurrently.
+     *
+     * @return
+     *      false if the results also depend on other class files of the inspected module,
+     *      and so cannot be reused when only this class file is unchanged.
+     */
+    private boolean checkClass(File clazz, ErrorListener errorListener) throws IOException {
         try (FileInputStream in = new FileInputStream(clazz)) {
-            ClassReader cr = new ClassReader(in);
-            cr.accept(new RestrictedClassVisitor(), SKIP_FRAMES);
+            return checkClass(in, errorListener);
         }
     }
 
-    private Iterable<Restrictions> getRestrictions(String keyName, Set<Type> skippedTypes) {
-        List<Restrictions> rs = new ArrayList<>();
-        Restrictions r = restrictions.get(keyName);
-        if (r != null && skippedTypes.isEmpty()) {
-            rs.add(r); // Don't get it from the cache if we have types that we want to skip
-        }
-        int idx = Integer.MAX_VALUE;
-        while (true) {
-            int newIdx = keyName.lastIndexOf('.', idx);
-            if (newIdx == -1) {
-                newIdx = keyName.lastIndexOf('$', idx);
-                if (newIdx == -1) {
-                    break;
+    private boolean checkClass(InputStream in, ErrorListener errorListener) throws IOException {
+        ClassFileBuffer b = buffers.get();
+        b.read(in);
+        return checkClass(b, errorListener);
+    }
+
+    private boolean checkClass(ClassFileBuffer b, ErrorListener errorListener) {
+        boolean selfContained = true;
+        ClassCheckEvent event = new ClassCheckEvent();
+        event.begin();
+        // nothing keeps the reader once the class is checked, so the buffer can be reused for the next one
+        ClassReader cr = new ClassReader(b.bytes, 0, b.length);
+        if (referencesRestrictedType(cr)) {
+            RestrictedClassVisitor visitor;
+            if (lineNumbersOnDemand && usages == null) {
+                RecordingErrorListener found = new RecordingErrorListener();
+                visitor = new RestrictedClassVisitor(found, cr);
+                cr.accept(visitor, SKIP_DEBUG | SKIP_FRAMES);
+                if (!found.isEmpty()) {
+                    // rare enough that checking the whole class again is simpler than mapping instructions to lines
+                    metrics.classesRescanned.increment();
+                    visitor = new RestrictedClassVisitor(ViolationEvent.recording(errorListener), cr);
+                    cr.accept(visitor, SKIP_FRAMES);
                 }
+            } else {
+                visitor = new RestrictedClassVisitor(ViolationEvent.recording(errorListener), cr);
+                cr.accept(visitor, SKIP_FRAMES);
+            }
+            selfContained = !visitor.usedHierarchy;
+            metrics.classesScanned.increment();
+            metrics.instructions.add(visitor.instructions);
+            metrics.lookups.add(visitor.lookups);
+            metrics.hits.add(visitor.hits);
+            if (visitor.uses != null) {
+                usages.addAll(visitor.uses);
             }
-            idx = newIdx;
-            keyName = keyName.substring(0, idx);
-            if(skippedTypes.contains(Type.getObjectType(keyName))) {
-                // We have hit a type that should be skipped - do not add it to the restrictions
-                break;
-            }
-            r = restrictions.get(keyName);
-            if (r != null) {
-                Collection<AccessRestriction> applicable = new ArrayList<>();
-                for (AccessRestriction ar : r) {
-                    if (ar.appliesToNested()) {
-                        applicable.add(ar);
+        } else {
+            metrics.classesSkipped.increment();
+            event.skipped = true;
+        }
+        if (event.shouldCommit()) {
+            event.className = cr.getClassName().replace('/', '.');
+            event.bytes = b.length;
+            event.commit();
+        }
+        return selfContained;
+    }
+
+    /**
+     * A growable array holding the class file being checked.
+     */
+    private static final class ClassFileBuffer {
+        byte[] bytes = new byte[16 * 1024];
+        int length;
+
+        /**
+         * Reads the whole stream, from where it is, into {@link #bytes}.
+         */
+        void read(InputStream in) throws IOException {
+            length = 0;
+            int n;
+            while ((n = in.read(bytes, length, bytes.length - length)) >= 0) {
+                length += n;
+                if (length == bytes.length) {
+                    int next = in.read();
+                    if (next < 0) {
+                        break;
                     }
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                    bytes[length++] = (byte) next;
                 }
-                if (!applicable.isEmpty()) {
-                    rs.add(new Restrictions(r.target, applicable));
+            }
+        }
+    }
+
+    /**
+     * Every type that a class uses, extends, or whose members it accesses, is named by a
+     * {@code CONSTANT_Class} entry of its constant pool. If none of them can have restrictions,
+     * visiting the code is pointless.
+     */
+    private boolean referencesRestrictedType(ClassReader cr) {
+        char[] buf = new char[cr.getMaxStringLength()];
+        for (int i = 1; i < cr.getItemCount(); i++) {
+            int offset = cr.getItem(i);
+            // offset is 0 for the unusable entry after a long or a double, and points after the tag otherwise
+            if (offset != 0 && cr.readByte(offset - 1) == CONSTANT_CLASS) {
+                if (restrictions.mayApplyTo(cr.readUTF8(offset, buf))) {
+                    return true;
                 }
             }
         }
-        return rs;
+        return false;
     }
 
-    private static final String RESTRICTED_DESCRIPTOR = Type.getDescriptor(Restricted.class);
+    private static final String SUPPRESS_RESTRICTED_WARNINGS_DESCRIPTOR = Type.getDescriptor(SuppressRestrictedWarnings.class);
+
+    /**
+     * Tag of {@code CONSTANT_Class} entries in the constant pool.
+     */
+    private static final int CONSTANT_CLASS = 7;
 
     private static boolean isSynthetic(int access) {
         return (access & Opcodes.ACC_SYNTHETIC) != 0;
     }
 
     private class RestrictedClassVisitor extends ClassVisitor {
+        private final ErrorListener errorListener;
+        private final ClassReader reader;
         private String className;
         private String methodName, methodDesc;
+        private int line;
         private String superName;
         private String[] interfaces;
         private RestrictedAnnotationVisitor annotationVisitor = new RestrictedAnnotationVisitor();
 
+        /**
+         * Counts for {@link ScanMetrics}, kept here to not touch shared counters for every instruction.
+         */
+        private long instructions, lookups, hits;
+
+        /**
+         * Whether a restriction looked at other class files.
+         */
+        private boolean usedHierarchy;
+
+        /**
+         * {@link ClassInfo} of this class, read from {@link #reader} when first asked for.
+         */
+        private ClassInfo classInfo;
+
         private Set<Type> getSkippedTypes() {
             return annotationVisitor.getSkippedTypes();
         }
 
-        public RestrictedClassVisitor() {
+        /**
+         * Uses of restricted elements, if they are recorded.
+         */
+        private final List<String> uses = usages != null ? new ArrayList<>() : null;
+
+        /**
+         * Whether the code of a method is being visited, as opposed to the class itself.
+         */
+        private boolean inMethod;
+
+        /**
+         * Looks up the restrictions that apply to a use, like {@link RestrictionTable} does, and counts and records the use.
+         */
+        private List<Restrictions> forType(String type, Set<Type> skippedTypes) {
+            return count(restrictions.forType(type, skippedTypes),
+                    uses == null || skippedTypes.isEmpty() ? null : restrictions.forType(type, Collections.emptySet()));
+        }
+
+        private List<Restrictions> forField(String type, String name, Set<Type> skippedTypes) {
+            return count(restrictions.forField(type, name, skippedTypes),
+                    uses == null || skippedTypes.isEmpty() ? null : restrictions.forField(type, name, Collections.emptySet()));
+        }
+
+        private List<Restrictions> forMethod(String type, String name, String desc, Set<Type> skippedTypes) {
+            return count(restrictions.forMethod(type, name, desc, skippedTypes),
+                    uses == null || skippedTypes.isEmpty() ? null : restrictions.forMethod(type, name, desc, Collections.emptySet()));
+        }
+
+        /**
+         * @param rs
+         *      Restrictions found for a use.
+         * @param unsuppressed
+         *      Those found for the same use if nothing were suppressed, when uses are recorded and something is,
+         *      so that the uses that are suppressed are recorded too.
+         */
+        private List<Restrictions> count(List<Restrictions> rs, List<Restrictions> unsuppressed) {
+            lookups++;
+            if (!rs.isEmpty()) {
+                hits++;
+                if (uses != null) {
+                    for (Restrictions r : rs) {
+                        use(r, false);
+                    }
+                }
+            }
+            if (unsuppressed != null) {
+                for (Restrictions r : unsuppressed) {
+                    if (!rs.contains(r)) {
+                        use(r, true);
+                    }
+                }
+            }
+            return rs;
+        }
+
+        private void use(Restrictions r, boolean suppressed) {
+            uses.add(UsageIndex.line(r.target.toString(), className,
+                    inMethod ? methodName + methodDesc : null, inMethod ? line : 0, suppressed));
+        }
+
+        public RestrictedClassVisitor(ErrorListener errorListener, ClassReader reader) {
             super(Opcodes.ASM9);
+            this.errorListener = errorListener;
+            this.reader = reader;
         }
 
         @Override
@@ -303,15 +892,16 @@ public class Checker {
 
         @Override
         public void visitEnd() {
+            inMethod = false;
             // We need to do this in visitEnd so that we have parsed the annotations _before_ doing these checks
             if (superName != null) {
-                for (Restrictions r : getRestrictions(superName, getSkippedTypes())) {
+                for (Restrictions r : forType(superName, getSkippedTypes())) {
                     r.usedAsSuperType(currentLocation, errorListener);
                 }
             }
             if (interfaces != null) {
                 for (String intf : interfaces) {
-                    for (Restrictions r : getRestrictions(intf, getSkippedTypes())) {
+                    for (Restrictions r : forType(intf, getSkippedTypes())) {
                         r.usedAsInterface(currentLocation, errorListener);
                     }
                 }
@@ -322,17 +912,18 @@ public class Checker {
         public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
             this.methodName  = name;
             this.methodDesc = desc;
+            this.inMethod = true;
 
             if (isSynthetic(access)) {
                 return null;
             }
 
-            return new RestrictedMethodVisitor(currentLocation, className, annotationVisitor.getSkippedTypes());
+            return new RestrictedMethodVisitor(this, annotationVisitor.getSkippedTypes());
         }
 
         @Override
         public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-            return Type.getType(SuppressRestrictedWarnings.class).equals(Type.getType(desc))
+            return SUPPRESS_RESTRICTED_WARNINGS_DESCRIPTOR.equals(desc)
                     ? annotationVisitor
                     : super.visitAnnotation(desc, visible);        }
 
@@ -374,57 +965,99 @@ public class Checker {
             public String getProperty(String key) {
                 return properties.getProperty(key);
             }
+
+            @Override
+            public ClassHierarchy getClassHierarchy() {
+                usedHierarchy = true;
+                return hierarchy;
+            }
+
+            @Override
+            public ClassInfo getClassInfo(String type) throws IOException {
+                if (type.equals(className)) {
+                    if (classInfo == null) {
+                        classInfo = ClassInfo.read(reader);
+                    }
+                    return classInfo;
+                }
+                return getClassHierarchy().getClassInfo(type);
+            }
         };
     }
 
-    private static String topLevelClass(String a) {
+    /**
+     * Length of the name of the top-level class in the given internal name.
+     */
+    private static int topLevelClassLength(String a) {
       int i = a.indexOf('$');
       if (i == -1) {
-          return a;
+          return a.length();
       }
-      return a.substring(0, i);
+      return i;
     }
 
-    private static boolean sameClassFile(String currentClass, String owner) {
-        return topLevelClass(currentClass).equals(topLevelClass(owner));
+    static boolean sameClassFile(String currentClass, String owner) {
+        int length = topLevelClassLength(currentClass);
+        return length == topLevelClassLength(owner) && currentClass.regionMatches(0, owner, 0, length);
     }
 
     private class RestrictedMethodVisitor extends MethodVisitor {
 
         private final Set<Type> skippedTypesFromParent;
-        private Location currentLocation;
+        private final RestrictedClassVisitor parent;
+        private final Location currentLocation;
+        private final ErrorListener errorListener;
         private RestrictedAnnotationVisitor annotationVisitor = new RestrictedAnnotationVisitor();
         private final String currentClass;
 
+        /**
+         * Types skipped by the class and by this method, worked out once the annotations of this method are visited.
+         */
+        private Set<Type> allSkippedTypes;
+
         private Set<Type> getSkippedTypes() {
-            Set<Type> allSkippedTypes = new HashSet<>(skippedTypesFromParent);
-            allSkippedTypes.addAll(annotationVisitor.getSkippedTypes());
+            if (allSkippedTypes == null) {
+                // annotations come before the code, so this is first called once all of them are known
+                Set<Type> own = annotationVisitor.getSkippedTypes();
+                if (own.isEmpty()) {
+                    allSkippedTypes = skippedTypesFromParent.isEmpty() ? Collections.emptySet() : skippedTypesFromParent;
+                } else {
+                    Set<Type> all = new HashSet<>(skippedTypesFromParent);
+                    all.addAll(own);
+                    allSkippedTypes = Collections.unmodifiableSet(all);
+                }
+            }
             return allSkippedTypes;
         }
 
-        public RestrictedMethodVisitor(Location currentLocation, String currentClass, Set<Type> skippedTypes) {
+        public RestrictedMethodVisitor(RestrictedClassVisitor parent, Set<Type> skippedTypes) {
             super(Opcodes.ASM9);
-            log.debug(String.format("New method visitor at %s#%s",
-                    currentLocation.getClassName(), currentLocation.getMethodName()));
-            this.currentLocation = currentLocation;
+            this.parent = parent;
+            this.currentLocation = parent.currentLocation;
+            this.errorListener = parent.errorListener;
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("New method visitor at %s#%s",
+                        currentLocation.getClassName(), currentLocation.getMethodName()));
+            }
             this.skippedTypesFromParent = skippedTypes;
-            this.currentClass = currentClass;
+            this.currentClass = parent.className;
         }
 
         @Override
         public void visitLineNumber(int _line, Label start) {
-            line = _line;
+            parent.line = _line;
         }
 
         @Override
         public void visitTypeInsn(int opcode, String type) {
+            parent.instructions++;
             switch (opcode) {
             case Opcodes.NEW:
                 if (sameClassFile(currentClass, type)) {
                     return;
                 }
 
-                for (Restrictions r : getRestrictions(type, getSkippedTypes())) {
+                for (Restrictions r : parent.forType(type, getSkippedTypes())) {
                     r.instantiated(currentLocation, errorListener);
                 }
             }
@@ -432,26 +1065,32 @@ public class Checker {
 
         @Override
         public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
-            log.debug(String.format("Visiting method %s#%s", owner, name));
+            parent.instructions++;
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Visiting method %s#%s", owner, name));
+            }
 
             if (sameClassFile(currentClass, owner)) {
                 return;
             }
 
-            for (Restrictions r : getRestrictions(owner + '.' + name + desc, getSkippedTypes())) {
+            for (Restrictions r : parent.forMethod(owner, name, desc, getSkippedTypes())) {
                 r.invoked(currentLocation, errorListener);
             }
         }
 
         @Override
         public void visitFieldInsn(int opcode, String owner, String name, String desc) {
-            log.debug(String.format("Visiting field '%s %s' in type %s", desc, name, owner));
+            parent.instructions++;
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Visiting field '%s %s' in type %s", desc, name, owner));
+            }
 
             if (sameClassFile(currentClass, owner)) {
                 return;
             }
 
-            Iterable<Restrictions> rs = getRestrictions(owner + '.' + name, getSkippedTypes());
+            Iterable<Restrictions> rs = parent.forField(owner, name, getSkippedTypes());
             switch (opcode) {
                 case Opcodes.GETSTATIC:
                 case Opcodes.GETFIELD:
@@ -470,7 +1109,7 @@ public class Checker {
 
         @Override
         public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-            return Type.getType(SuppressRestrictedWarnings.class).equals(Type.getType(desc))
+            return SUPPRESS_RESTRICTED_WARNINGS_DESCRIPTOR.equals(desc)
                     ? annotationVisitor
                     : super.visitAnnotation(desc, visible);
         }
@@ -495,8 +1134,10 @@ public class Checker {
                 @Override
                 public void visit(String name, Object value) {
                     Type type = value instanceof Type ? (Type) value : Type.getType(value.getClass());
-                    log.debug(String.format("Skipping @%s class: %s",
-                            Restricted.class.getSimpleName(), type.getClassName()));
+                    if (log.isDebugEnabled()) {
+                        log.debug(String.format("Skipping @%s class: %s",
+                                Restricted.class.getSimpleName(), type.getClassName()));
+                    }
                     skippedRestrictedClasses.add(type);
                     super.visit(name, value);
                 }
@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Which class files of a directory are checked, going by glob patterns on their paths relative to the directory,
+ * such as {@code org/example/Messages.class} or {@code org/example/generated/**}.
+ * See {@link FileSystem#getPathMatcher(String)} for the syntax.
+ *
+ * <p>
+ * A class file is checked if it matches one of the includes, or if there are none, and none of the excludes.
+ * Excludes ending with {@code /**} skip whole directories, which are then not even listed.
+ */
+final class ClassFileFilter {
+    private final List<PathMatcher> includes = new ArrayList<>();
+    private final List<PathMatcher> excludes = new ArrayList<>();
+
+    /**
+     * Matches the directories whose content is all excluded.
+     */
+    private final List<PathMatcher> excludedDirectories = new ArrayList<>();
+
+    ClassFileFilter(Collection<String> includes, Collection<String> excludes) {
+        FileSystem fs = FileSystems.getDefault();
+        for (String pattern : includes) {
+            this.includes.add(fs.getPathMatcher("glob:" + pattern));
+        }
+        for (String pattern : excludes) {
+            this.excludes.add(fs.getPathMatcher("glob:" + pattern));
+            if (pattern.endsWith("/**")) {
+                excludedDirectories.add(fs.getPathMatcher("glob:" + pattern.substring(0, pattern.length() - 3)));
+            }
+        }
+    }
+
+    /**
+     * Whether nothing in the given directory is to be checked.
+     *
+     * @param dir
+     *      Relative to the directory being checked.
+     */
+    boolean skips(Path dir) {
+        return matches(excludedDirectories, dir);
+    }
+
+    /**
+     * Whether the given class file is to be checked.
+     *
+     * @param classFile
+     *      Relative to the directory being checked.
+     */
+    boolean accepts(Path classFile) {
+        return (includes.isEmpty() || matches(includes, classFile)) && !matches(excludes, classFile);
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path path) {
+        for (PathMatcher m : matchers) {
+            if (m.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
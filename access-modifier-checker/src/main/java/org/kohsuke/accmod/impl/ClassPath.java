@@ -0,0 +1,462 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Class files and other resources of the inspected module and its dependencies.
+ *
+ * <p>
+ * Unlike {@link java.net.URLClassLoader}, each jar file is opened only once, and a table from
+ * package names to jar files avoids searching every jar for every resource.
+ * Everything is released by {@link #close()}.
+ *
+ * <p>
+ * Of a Jenkins plugin ({@code .hpi} or {@code .jpi}) or a {@code .war} file, only {@code WEB-INF/classes}
+ * is used; the jar files in {@code WEB-INF/lib} have to be given separately.
+ * Files that are not zip files, such as the POM of a {@code pom} dependency, are left out,
+ * just like {@link java.net.URLClassLoader} ignores them.
+ */
+public final class ClassPath implements Closeable {
+    /**
+     * All the entries, in the classpath order.
+     */
+    private final Map<File, Container> containers = new LinkedHashMap<>();
+
+    /**
+     * From the package name, such as "a/b", to the jar files that have entries in it, in the classpath order.
+     */
+    private final Map<String, List<Container>> packages = new HashMap<>();
+
+    /**
+     * Class directories, whose contents are not known up front.
+     */
+    private final List<Container> directories = new ArrayList<>();
+
+    /**
+     * Files that were left out as they are not zip files.
+     */
+    private final List<File> skipped = new ArrayList<>();
+
+    private final Loader loader;
+
+    /**
+     * @param entries
+     *      Jar files and class directories, in the classpath order.
+     * @param parent
+     *      Parent of {@link #getClassLoader()}.
+     */
+    public ClassPath(List<File> entries, ClassLoader parent) throws IOException {
+        try {
+            for (File f : entries) {
+                if (containers.containsKey(f) || skipped.contains(f)) {
+                    continue;
+                }
+                Container c = open(f, containers.size());
+                if (c == null) {
+                    skipped.add(f);
+                    continue;
+                }
+                containers.put(f, c);
+                if (c instanceof Jar) {
+                    for (String pkg : ((Jar) c).packages()) {
+                        packages.computeIfAbsent(pkg, k -> new ArrayList<>()).add(c);
+                    }
+                } else {
+                    directories.add(c);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        loader = new Loader(this, parent);
+    }
+
+    /**
+     * @return null if the entry is a file but not a zip file.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Reads the classpath of the inspected module")
+    private static Container open(File entry, int index) throws IOException {
+        if (!entry.isFile()) {
+            return new Directory(entry, index);
+        }
+        String name = entry.getName();
+        boolean webApp = name.endsWith(".hpi") || name.endsWith(".jpi") || name.endsWith(".war");
+        try {
+            return new Jar(entry, index, webApp ? "WEB-INF/classes/" : "");
+        } catch (ZipException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Files that were given as entries but left out, as they are not zip files.
+     */
+    public List<File> getSkipped() {
+        return Collections.unmodifiableList(skipped);
+    }
+
+    /**
+     * Obtains the opened jar file or class directory, or null if it is not a part of this classpath.
+     */
+    Container getContainer(File entry) {
+        return containers.get(entry);
+    }
+
+    /**
+     * Finds the entry that has the resource of the given name, such as "a/b/C.class",
+     * in this classpath or else in the classpath of the parent of {@link #getClassLoader()}.
+     *
+     * @return null if no entry has it.
+     */
+    Container find(String name) {
+        for (Container c : candidates(name)) {
+            if (c.has(name)) {
+                return c;
+            }
+        }
+        ClassPath parent = of(loader.getParent());
+        return parent != null ? parent.find(name) : null;
+    }
+
+    /**
+     * Obtains the classpath whose {@link #getClassLoader()} is the given one, if it is one.
+     */
+    static ClassPath of(ClassLoader cl) {
+        return cl instanceof Loader ? ((Loader) cl).classPath : null;
+    }
+
+    /**
+     * {@link ClassLoader} view of this classpath, which reads resources through this object.
+     * It is no longer usable after {@link #close()}.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Meant to be used by the caller")
+    public ClassLoader getClassLoader() {
+        return loader;
+    }
+
+    /**
+     * Opens the resource of the given name, such as "a/b/C.class", from the first entry that has it.
+     *
+     * @return null if no entry has it.
+     */
+    public InputStream getResourceAsStream(String name) throws IOException {
+        for (Container c : candidates(name)) {
+            InputStream in = c.open(name);
+            if (in != null) {
+                return in;
+            }
+        }
+        return null;
+    }
+
+    private URL getResource(String name) throws IOException {
+        for (Container c : candidates(name)) {
+            URL url = c.getURL(name);
+            if (url != null) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    private List<URL> getResources(String name) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (Container c : candidates(name)) {
+            URL url = c.getURL(name);
+            if (url != null) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Entries that may have the resource of the given name, in the classpath order.
+     */
+    private List<Container> candidates(String name) {
+        int slash = name.lastIndexOf('/');
+        List<Container> jars = packages.getOrDefault(slash < 0 ? "" : name.substring(0, slash), Collections.emptyList());
+        if (directories.isEmpty()) {
+            return jars;
+        }
+        if (jars.isEmpty()) {
+            return directories;
+        }
+        List<Container> all = new ArrayList<>(jars.size() + directories.size());
+        int i = 0, j = 0;
+        while (i < jars.size() || j < directories.size()) {
+            if (j == directories.size() || i < jars.size() && jars.get(i).index < directories.get(j).index) {
+                all.add(jars.get(i++));
+            } else {
+                all.add(directories.get(j++));
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Container c : containers.values()) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A jar file or a class directory.
+     */
+    abstract static class Container implements Closeable {
+        final File file;
+        /**
+         * Position in the classpath.
+         */
+        final int index;
+
+        Container(File file, int index) {
+            this.file = file;
+            this.index = index;
+        }
+
+        /**
+         * Opens the resource of the given name, or returns null if there is no such resource.
+         */
+        abstract InputStream open(String name) throws IOException;
+
+        /**
+         * Whether there is a resource of the given name.
+         */
+        abstract boolean has(String name);
+
+        /**
+         * Names of all the class files, such as "a/b/C.class", sorted.
+         */
+        abstract List<String> listClasses() throws IOException;
+
+        abstract URL getURL(String name) throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class Jar extends Container {
+        private final ZipFile zip;
+
+        /**
+         * Directory of the jar that resource names are relative to, such as "WEB-INF/classes/", or "".
+         */
+        private final String prefix;
+
+        Jar(File file, int index, String prefix) throws IOException {
+            super(file, index);
+            this.zip = new ZipFile(file);
+            this.prefix = prefix;
+        }
+
+        /**
+         * Names of the packages that have entries in this jar.
+         */
+        Set<String> packages() {
+            Set<String> names = new HashSet<>();
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                String name = e.nextElement().getName();
+                if (!name.startsWith(prefix)) {
+                    continue;
+                }
+                int slash = name.lastIndexOf('/');
+                names.add(slash < prefix.length() ? "" : name.substring(prefix.length(), slash));
+            }
+            return names;
+        }
+
+        @Override
+        InputStream open(String name) throws IOException {
+            ZipEntry e = zip.getEntry(prefix + name);
+            return e == null || e.isDirectory() ? null : zip.getInputStream(e);
+        }
+
+        @Override
+        boolean has(String name) {
+            ZipEntry e = zip.getEntry(prefix + name);
+            return e != null && !e.isDirectory();
+        }
+
+        @Override
+        List<String> listClasses() {
+            List<String> names = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                String name = e.nextElement().getName();
+                if (name.startsWith(prefix) && name.endsWith(".class")) {
+                    names.add(name.substring(prefix.length()));
+                }
+            }
+            Collections.sort(names);
+            return names;
+        }
+
+        @Override
+        URL getURL(String name) throws IOException {
+            ZipEntry e = zip.getEntry(prefix + name);
+            return e == null ? null : new URL("jar:" + file.toURI() + "!/" + prefix + name);
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    private static final class Directory extends Container {
+        Directory(File file, int index) {
+            super(file, index);
+        }
+
+        @Override
+        @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Reads the classpath of the inspected module")
+        InputStream open(String name) throws IOException {
+            File f = new File(file, name);
+            return f.isFile() ? Files.newInputStream(f.toPath()) : null;
+        }
+
+        @Override
+        @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Reads the classpath of the inspected module")
+        boolean has(String name) {
+            return new File(file, name).isFile();
+        }
+
+        @Override
+        List<String> listClasses() throws IOException {
+            final Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                return paths.filter(p -> p.toString().endsWith(".class") && Files.isRegularFile(p))
+                        .map(p -> root.relativize(p).toString().replace(File.separatorChar, '/'))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+
+        @Override
+        @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Reads the classpath of the inspected module")
+        URL getURL(String name) throws IOException {
+            File f = new File(file, name);
+            return f.exists() ? f.toURI().toURL() : null;
+        }
+    }
+
+    /**
+     * Defines classes and finds resources from a {@link ClassPath}.
+     * Like other class loaders, classes and {@link #getResource(String)} are looked up in the parent first,
+     * but {@link #getResourceAsStream(String)} prefers the classpath, since that is what is being inspected.
+     */
+    private static final class Loader extends ClassLoader {
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final ClassPath classPath;
+
+        Loader(ClassPath classPath, ClassLoader parent) {
+            super(parent);
+            this.classPath = classPath;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            try (InputStream in = classPath.getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                byte[] b = in.readAllBytes();
+                return defineClass(name, b, 0, b.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            try {
+                return classPath.getResource(name);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        protected Enumeration<URL> findResources(String name) throws IOException {
+            return Collections.enumeration(classPath.getResources(name));
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            try {
+                InputStream in = classPath.getResourceAsStream(name);
+                if (in != null) {
+                    return in;
+                }
+            } catch (IOException e) {
+                // fall through
+            }
+            if (getParent() instanceof Loader) {
+                return getParent().getResourceAsStream(name); // without going through a jar: URL
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.kohsuke.accmod.impl;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -14,11 +15,15 @@ import org.kohsuke.accmod.Restricted;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +39,9 @@ public class EnforcerMojo extends AbstractMojo {
     @Parameter(property = "project", readonly = true)
     protected MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     /**
      * If true, skip running the checker entirely.
      */
@@ -52,6 +60,95 @@ public class EnforcerMojo extends AbstractMojo {
     @Parameter
     private Properties properties;
 
+    /**
+     * Number of threads used to check class files.
+     * Zero or less means one thread per available processor.
+     * Errors are reported in the same order regardless of this setting.
+     */
+    @Parameter(property = "access-modifier-checker.threads", defaultValue = "1")
+    private int threads = 1;
+
+    /**
+     * Class files of this module to check, as glob patterns on their paths relative to the output directory,
+     * such as {@code org/example/api/**}. All of them are checked by default.
+     */
+    @Parameter(property = "access-modifier-checker.includes")
+    private List<String> includes;
+
+    /**
+     * Class files of this module to not check, as glob patterns like {@link #includes},
+     * such as generated {@code org/example/Messages.class} or a shaded {@code org/example/shaded/**}.
+     * Directories excluded with a pattern ending with {@code /**} are not even listed.
+     */
+    @Parameter(property = "access-modifier-checker.excludes")
+    private List<String> excludes;
+
+    /**
+     * If true, remember the results of each class file under {@code target/}
+     * and only check again the class files that changed since the previous run.
+     * Everything is checked again if the dependencies, the restrictions or the {@link #properties} change.
+     */
+    @Parameter(property = "access-modifier-checker.incremental", defaultValue = "false")
+    private boolean incremental = false;
+
+    /**
+     * If set, the restrictions found in each dependency jar are kept in this directory,
+     * so that later builds do not have to parse the class files of the same jar again.
+     * The directory can be shared between projects, for example {@code ${user.home}/.m2/access-modifier-checker}.
+     */
+    @Parameter(property = "access-modifier-checker.cacheDirectory")
+    private File cacheDirectory;
+
+    /**
+     * Maximum number of restricted elements of dependency jars kept in memory for the other modules
+     * of the same build, so that they do not have to read the same jars again.
+     * Zero disables this. The value of the first module that runs the checker is used.
+     */
+    @Parameter(property = "access-modifier-checker.sessionCacheSize", defaultValue = "500000")
+    private int sessionCacheSize = 500000;
+
+    /**
+     * If true, what is read from dependency jars is kept in memory for later builds in the same JVM,
+     * such as with the Maven daemon, for as long as the jars do not change and memory allows.
+     * Off by default, as that memory stays taken after the build, for the life of the JVM.
+     */
+    @Parameter(property = "access-modifier-checker.processCache", defaultValue = "false")
+    private boolean processCache;
+
+    /**
+     * If true, the {@code @Restricted} classes of the dependencies are listed up front,
+     * but their restrictions are only read once a class file of this module refers to them
+     * or to a class nested in them. This pays off for small modules with large dependencies.
+     * Dependencies are then read directly rather than through {@link #cacheDirectory}, {@link #sessionCacheSize}
+     * and {@link #processCache}, and {@link #incremental} checks still need all the restrictions.
+     */
+    @Parameter(property = "access-modifier-checker.lazy", defaultValue = "false")
+    private boolean lazy = false;
+
+    /**
+     * If true, class files are first checked without reading their debug information,
+     * and only those with errors or warnings are read again to report line numbers.
+     * The output is the same, and most class files have no errors, so this is faster.
+     */
+    @Parameter(property = "access-modifier-checker.lineNumbersOnDemand", defaultValue = "false")
+    private boolean lineNumbersOnDemand = false;
+
+    /**
+     * If true, write counters and timings of the check to {@code target/accmod-metrics.json}.
+     * A summary is always printed.
+     */
+    @Parameter(property = "access-modifier-checker.writeMetrics", defaultValue = "false")
+    private boolean writeMetrics = false;
+
+    /**
+     * If set, every use of a restricted element by the class files of this module, allowed or not,
+     * is written to this file with the class, method and line it comes from.
+     * See {@link Main} for merging the files of several modules and finding the uses of an element.
+     * {@link #incremental} results are not used while this is set, as they do not include the uses.
+     */
+    @Parameter(property = "access-modifier-checker.usageIndex")
+    private File usageIndex;
+
     @Override
     @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User-provided value for running the program")
     public void execute() throws MojoExecutionException, MojoFailureException {
@@ -62,53 +159,140 @@ public class EnforcerMojo extends AbstractMojo {
         try {
             File outputDir = new File(project.getBuild().getOutputDirectory());
 
-            List<URL> dependencies = new ArrayList<>();
+            List<File> dependencies = new ArrayList<>();
             for (Artifact a : project.getArtifacts())
-                dependencies.add(a.getFile().toURI().toURL());
-            URL outputURL = outputDir.toURI().toURL();
-            dependencies.add(outputURL);
-            getLog().debug("inspecting\n" + dependencies.stream().map(URL::toString).collect(Collectors.joining("\n")));
-
-            final boolean[] failed = new boolean[1];
-            Checker checker = new Checker(new URLClassLoader(dependencies.toArray(new URL[0]), getClass().getClassLoader()),
-                new ErrorListener() {
-                    @Override
-                    public void onError(Throwable t, Location loc, String msg) {
-                        String locMsg = loc+" "+msg;
-                        if (failOnError) {
-                            getLog().error(locMsg, t);
-                        } else {
-                            getLog().warn(locMsg, t);
-                        }
-                        failed[0] = true;
-                    }
-
-                    @Override
-                    public void onWarning(Throwable t, Location loc, String msg) {
-                        getLog().warn(loc+" "+msg,t);
-                    }
-                }, properties != null ? properties : new Properties(), getLog());
-
-            // If there is a restriction list in the inspected module itself, load it as well:
-            try {
-                checker.loadRestrictions(new URLClassLoader(new URL[] {outputURL}, ClassLoader.getSystemClassLoader().getParent()), true);
-                getLog().debug("loaded local index " + outputURL);
-            } catch (IOException e) {
-                getLog().debug("could not load local index " + outputURL, e);
-            }
+                dependencies.add(a.getFile());
+            dependencies.add(outputDir);
+            getLog().debug("inspecting\n" + dependencies.stream().map(File::toString).collect(Collectors.joining("\n")));
 
-            // perform checks
-            checker.check(outputDir);
-            if (failed[0]) {
-                String message = "Access modifier checks failed. See the details above";
-                if (failOnError) {
-                    throw new MojoFailureException(message);
-                } else {
-                    getLog().warn(message);
+            long start = System.nanoTime();
+            try (ClassPath classPath = new ClassPath(dependencies, getClass().getClassLoader())) {
+                for (File f : classPath.getSkipped()) {
+                    getLog().debug("skipped " + f + ", which is not a jar file");
                 }
+                enforce(classPath, outputDir, System.nanoTime() - start);
             }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to enforce @Restricted constraints",e);
         }
     }
+
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User-provided value for running the program")
+    private void enforce(ClassPath classPath, File outputDir, long classPathNanos) throws IOException, MojoFailureException {
+        Logger log = new MavenLogger(getLog());
+        LoggingErrorListener listener = new LoggingErrorListener(log, failOnError);
+        Checker checker = new Checker(classPath.getClassLoader(), listener,
+                properties != null ? properties : new Properties(), log, false);
+        ScanMetrics metrics = checker.getMetrics();
+        metrics.classPathNanos.add(classPathNanos);
+
+        RestrictionIndexCache cache = cacheDirectory != null ? new RestrictionIndexCache(cacheDirectory) : null;
+        SessionRestrictionCache.Reader reader = cache != null ? cache::get : RestrictionIndex::read;
+        if (processCache) {
+            SessionRestrictionCache.Reader uncached = reader;
+            reader = c -> ProcessCache.restrictions(c, uncached);
+            checker.setClassHierarchy(new ProcessCache.Hierarchy(classPath));
+        }
+        SessionRestrictionCache sessionCache = session != null && sessionCacheSize > 0
+                ? SessionRestrictionCache.of(session.getRepositorySession(), sessionCacheSize) : null;
+        for (Artifact a : project.getArtifacts()) {
+            ClassPath.Container c = classPath.getContainer(a.getFile());
+            if (c == null) {
+                continue; // not a jar file, such as the POM of a dependency of type pom
+            }
+            long start = System.nanoTime();
+            if (lazy) {
+                RestrictionIndex index = RestrictionIndex.readLazily(c);
+                metrics.loadNanos.add(System.nanoTime() - start);
+                checker.loadRestrictionsLazily(index, false);
+                continue;
+            }
+            RestrictionIndex index = sessionCache != null ? sessionCache.get(c, reader) : reader.read(c);
+            metrics.loadNanos.add(System.nanoTime() - start);
+            checker.loadRestrictions(index, false);
+        }
+
+        // If there is a restriction list in the inspected module itself, load it as well:
+        try {
+            long start = System.nanoTime();
+            ClassPath.Container c = classPath.getContainer(outputDir);
+            RestrictionIndex index = lazy ? RestrictionIndex.readLazily(c) : RestrictionIndex.read(c);
+            metrics.loadNanos.add(System.nanoTime() - start);
+            if (lazy) {
+                checker.loadRestrictionsLazily(index, true);
+            } else {
+                checker.loadRestrictions(index, true);
+            }
+            getLog().debug("loaded local index " + outputDir);
+        } catch (IOException e) {
+            getLog().debug("could not load local index " + outputDir, e);
+        }
+
+        IncrementalState state = null;
+        File stateFile = new File(project.getBuild().getDirectory(), "access-modifier-checker.state");
+        if (incremental && usageIndex == null) {
+            state = IncrementalState.load(stateFile, describeEnvironment(checker), checker.dependencies,
+                    checker.getClassHierarchy(), checker.getProperties());
+            checker.setIncrementalState(state);
+        }
+
+        UsageIndex usages = null;
+        if (usageIndex != null) {
+            usages = new UsageIndex();
+            checker.setUsageIndex(usages);
+        }
+
+        // perform checks
+        checker.setThreads(threads);
+        if ((includes != null && !includes.isEmpty()) || (excludes != null && !excludes.isEmpty())) {
+            checker.setFilter(new ClassFileFilter(includes != null ? includes : Collections.emptyList(),
+                    excludes != null ? excludes : Collections.emptyList()));
+        }
+        checker.setLineNumbersOnDemand(lineNumbersOnDemand);
+        checker.check(outputDir);
+        if (state != null) {
+            state.save(stateFile);
+        }
+        if (usages != null) {
+            usages.write(usageIndex);
+        }
+        getLog().info(metrics.summary());
+        if (writeMetrics) {
+            File metricsFile = new File(project.getBuild().getDirectory(), "accmod-metrics.json");
+            Files.createDirectories(metricsFile.getParentFile().toPath());
+            Files.write(metricsFile.toPath(), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        if (listener.hasFailed()) {
+            if (failOnError) {
+                throw new MojoFailureException(LoggingErrorListener.FAILURE_MESSAGE);
+            } else {
+                getLog().warn(LoggingErrorListener.FAILURE_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Summarizes everything other than the class files themselves that the results of the check depend on.
+     */
+    private String describeEnvironment(Checker checker) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        for (Artifact a : project.getArtifacts()) {
+            File f = a.getFile();
+            digest.update((f.getPath() + '|' + f.length() + '|' + f.lastModified() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        for (String key : new TreeSet<>(checker.getProperties().stringPropertyNames())) {
+            digest.update((key + '=' + checker.getProperties().getProperty(key) + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        checker.digestRestrictions(digest);
+        StringBuilder b = new StringBuilder();
+        for (byte x : digest.digest()) {
+            b.append(String.format("%02x", x));
+        }
+        return b.toString();
+    }
 }
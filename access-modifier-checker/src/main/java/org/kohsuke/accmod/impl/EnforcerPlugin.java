@@ -0,0 +1,886 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.kohsuke.MetaInfServices;
+import org.kohsuke.accmod.AccessRestriction;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.suppressions.SuppressRestrictedWarnings;
+import org.objectweb.asm.Type;
+
+/**
+ * Enforces {@link Restricted} while javac compiles, so that violations are reported as compile errors
+ * of the offending source lines, without reading the class files again afterwards.
+ *
+ * <pre>
+ * javac -processorpath access-modifier-checker.jar:access-modifier-annotation.jar:access-modifier-suppressions.jar:annotation-indexer.jar:asm.jar \
+ *     -Xplugin:"AccessModifierChecker [options]" ...
+ * </pre>
+ *
+ * Restrictions of the compiled sources are taken from the sources. Those of dependencies are read from the types
+ * of the classpath of the compilation, as javac sees them, when a compiled class first refers to them.
+ * The {@link AccessRestriction}s themselves are loaded from where the plugin is loaded, which is the classpath unless
+ * a processor path is given. {@code -Dkey=value} and {@code --warn-only} work like for {@link Main}.
+ *
+ * <p>
+ * Each class is checked once javac has analyzed it, by looking for the instructions {@link Checker} would
+ * find in its class file: the same restricted elements are looked up with the same keys, and the same methods
+ * of {@link AccessRestriction} are called. So code that javac compiles into synthetic methods, such as the bodies
+ * of lambdas, is not checked, and neither are method references. Locations have no method descriptor
+ * in field initializers, and {@link Location#getClassInfo(String)} of a compiled class reads its
+ * previous class file, if any.
+ */
+@MetaInfServices(Plugin.class)
+public final class EnforcerPlugin implements Plugin {
+    static final String NAME = "AccessModifierChecker";
+
+    static final String USAGE = "Usage: -Xplugin:\"" + NAME + " [options]\"\n"
+            + "Options:\n"
+            + "  -Dkey=value            Property made available to restriction checkers\n"
+            + "  --warn-only            Report errors as warnings\n";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(JavacTask task, String... args) {
+        Properties properties = new Properties();
+        boolean failOnError = true;
+        for (String arg : args) {
+            if (arg.startsWith("-D")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    properties.setProperty(arg.substring(2), "true");
+                } else {
+                    properties.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+                }
+            } else if (arg.equals("--warn-only")) {
+                failOnError = false;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg + "\n" + USAGE);
+            }
+        }
+        task.addTaskListener(new Enforcer(task, properties, failOnError));
+    }
+
+    /**
+     * Checks each class of a compilation once it is analyzed, and reports problems to javac.
+     */
+    private static final class Enforcer implements TaskListener, ErrorListener {
+        private final Trees trees;
+        private final Elements elements;
+        private final Types types;
+        private final Properties properties;
+        private final boolean failOnError;
+
+        /**
+         * The compilation units entered so far, by their source files, of which the latest round counts.
+         */
+        private final Map<JavaFileObject, CompilationUnitTree> units = new LinkedHashMap<>();
+
+        /**
+         * Created when the first class is checked, as then all the sources have been entered.
+         */
+        private Checker checker;
+
+        /**
+         * Given to restrictions, along with {@link #checker}.
+         */
+        private ClassHierarchy hierarchy;
+
+        /**
+         * Internal names of the types whose restrictions are loaded or deferred: the compiled ones,
+         * and the others that compiled classes referred to so far.
+         */
+        private final Set<String> seen = new HashSet<>();
+
+        /**
+         * Set if the restrictions could not be read, in which case nothing is checked.
+         */
+        private boolean broken;
+
+        /**
+         * Where problems are reported.
+         */
+        private CompilationUnitTree unit;
+        private Tree tree;
+
+        Enforcer(JavacTask task, Properties properties, boolean failOnError) {
+            this.trees = Trees.instance(task);
+            this.elements = task.getElements();
+            this.types = task.getTypes();
+            this.properties = properties;
+            this.failOnError = failOnError;
+        }
+
+        @Override
+        public void started(TaskEvent e) {
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            switch (e.getKind()) {
+            case ENTER:
+                if (e.getCompilationUnit() != null) {
+                    units.put(e.getCompilationUnit().getSourceFile(), e.getCompilationUnit());
+                }
+                break;
+            case ANALYZE:
+                TypeElement type = e.getTypeElement();
+                // member classes are checked with the class around them
+                if (type != null && type.getNestingKind() == NestingKind.TOP_LEVEL) {
+                    TreePath path = trees.getPath(type);
+                    if (path != null) {
+                        check(path);
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void check(TreePath path) {
+            unit = path.getCompilationUnit();
+            tree = path.getLeaf();
+            if (checker == null && !broken) {
+                try {
+                    checker = createChecker();
+                } catch (IOException x) {
+                    broken = true;
+                    trees.printMessage(Diagnostic.Kind.ERROR, "Failed to enforce @Restricted constraints: " + x, tree, unit);
+                }
+            }
+            if (checker != null) {
+                new Scanner().scan(path, null);
+                checker.reportDeferredProblems();
+            }
+        }
+
+        private Checker createChecker() throws IOException {
+            // restrictions of dependencies are deferred as classes refer to them, see referenced(TypeElement);
+            // only AccessRestrictions, and class files that javac does not know, are loaded from here
+            ClassLoader cl = EnforcerPlugin.class.getClassLoader();
+            Checker c = new Checker(cl, this, properties, new JavacLogger(), false);
+            hierarchy = new SourceHierarchy(cl);
+            c.setClassHierarchy(hierarchy);
+            Map<String, List<String>> own = new LinkedHashMap<>();
+            for (CompilationUnitTree u : units.values()) {
+                for (Tree decl : u.getTypeDecls()) {
+                    Element e = trees.getElement(new TreePath(new TreePath(u), decl));
+                    if (e instanceof TypeElement) {
+                        findRestrictions((TypeElement) e, own, seen);
+                    }
+                }
+            }
+            c.loadRestrictions(RestrictionIndex.of(own), true);
+            return c;
+        }
+
+        /**
+         * The internal name of a type that a compiled class refers to.
+         * The first time a type of the classpath is referred to, its restrictions and those of the types around it
+         * are deferred until they are looked up.
+         */
+        private String referenced(TypeElement type) {
+            String name = internalName(type);
+            for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+                final TypeElement t = (TypeElement) e;
+                final String n = t == type ? name : internalName(t);
+                if (seen.add(n) && trees.getPath(t) == null) { // else compiled, as a local class or in one
+                    checker.deferRestrictions(n, () -> {
+                        Map<String, List<String>> found = new LinkedHashMap<>();
+                        findOwnRestrictions(t, n, found);
+                        return found;
+                    }, false);
+                }
+            }
+            return name;
+        }
+
+        /**
+         * Finds the {@link Restricted} elements of a compiled type and of its member types.
+         *
+         * @param found
+         *      From the restricted key (see {@link Checker}) to the class names of the {@link AccessRestriction}s.
+         * @param compiled
+         *      Receives the internal names of the types.
+         */
+        private void findRestrictions(TypeElement type, Map<String, List<String>> found, Set<String> compiled) {
+            String name = internalName(type);
+            compiled.add(name);
+            findOwnRestrictions(type, name, found);
+            for (Element e : type.getEnclosedElements()) {
+                if (e instanceof TypeElement) {
+                    findRestrictions((TypeElement) e, found, compiled);
+                }
+            }
+        }
+
+        /**
+         * Finds the {@link Restricted} elements of a type, but not those of its member types.
+         *
+         * @param name
+         *      Internal name of the type.
+         */
+        private void findOwnRestrictions(TypeElement type, String name, Map<String, List<String>> found) {
+            addRestrictions(type, name, found);
+            for (Element e : type.getEnclosedElements()) {
+                switch (e.getKind()) {
+                case FIELD:
+                case ENUM_CONSTANT:
+                    addRestrictions(e, name + '.' + e.getSimpleName(), found);
+                    break;
+                case METHOD:
+                case CONSTRUCTOR:
+                    String desc = descriptor((ExecutableElement) e);
+                    if (desc != null) {
+                        addRestrictions(e, name + '.' + methodName((ExecutableElement) e) + desc, found);
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        private void addRestrictions(Element e, String key, Map<String, List<String>> found) {
+            List<String> names = new ArrayList<>();
+            for (TypeElement t : classValues(e, Restricted.class.getName())) {
+                names.add(elements.getBinaryName(t).toString());
+            }
+            if (!names.isEmpty()) {
+                found.put(key, names);
+            }
+        }
+
+        /**
+         * The classes in the value of the given annotation on an element.
+         */
+        private List<TypeElement> classValues(Element e, String annotation) {
+            List<TypeElement> classes = new ArrayList<>();
+            for (AnnotationMirror a : e.getAnnotationMirrors()) {
+                if (!((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                    continue;
+                }
+                for (AnnotationValue v : a.getElementValues().values()) {
+                    Object value = v.getValue();
+                    for (Object o : value instanceof List ? (List<?>) value : Collections.singletonList(v)) {
+                        Object type = ((AnnotationValue) o).getValue();
+                        if (type instanceof DeclaredType) {
+                            classes.add((TypeElement) ((DeclaredType) type).asElement());
+                        }
+                    }
+                }
+            }
+            return classes;
+        }
+
+        @Override
+        public void onError(Throwable t, Location loc, String msg) {
+            report(failOnError ? Diagnostic.Kind.ERROR : Diagnostic.Kind.WARNING, t, msg);
+        }
+
+        @Override
+        public void onWarning(Throwable t, Location loc, String msg) {
+            report(Diagnostic.Kind.WARNING, t, msg);
+        }
+
+        private void report(Diagnostic.Kind kind, Throwable t, String msg) {
+            trees.printMessage(kind, t == null ? msg : msg + ": " + t, tree, unit);
+        }
+
+        /**
+         * Reports what {@link Checker} logs as notes, warnings and errors of the class being checked,
+         * leaving out what it logs for debugging.
+         */
+        private final class JavacLogger implements Logger {
+            @Override
+            public boolean isDebugEnabled() {
+                return false;
+            }
+
+            @Override
+            public void debug(String message) {
+            }
+
+            @Override
+            public void info(String message) {
+                report(Diagnostic.Kind.NOTE, null, message);
+            }
+
+            @Override
+            public void warn(String message, Throwable t) {
+                report(Diagnostic.Kind.WARNING, t, message);
+            }
+
+            @Override
+            public void error(String message, Throwable t) {
+                report(Diagnostic.Kind.ERROR, t, message);
+            }
+        }
+
+        private String internalName(TypeElement type) {
+            return elements.getBinaryName(type).toString().replace('.', '/');
+        }
+
+        private static String methodName(ExecutableElement m) {
+            return m.getKind() == ElementKind.CONSTRUCTOR ? "<init>" : m.getSimpleName().toString();
+        }
+
+        /**
+         * The descriptor of the given method in class files, or null if it cannot be worked out from the source,
+         * as for the constructors of local classes.
+         */
+        private String descriptor(ExecutableElement m) {
+            StringBuilder b = new StringBuilder("(");
+            if (m.getKind() == ElementKind.CONSTRUCTOR) {
+                TypeElement owner = (TypeElement) m.getEnclosingElement();
+                if (owner.getKind() == ElementKind.ENUM) {
+                    b.append("Ljava/lang/String;I"); // name and ordinal
+                } else if (owner.getNestingKind() == NestingKind.MEMBER && owner.getKind() == ElementKind.CLASS
+                        && !owner.getModifiers().contains(Modifier.STATIC)) {
+                    b.append(descriptor(owner.getEnclosingElement().asType())); // outer instance
+                } else if (owner.getNestingKind() != NestingKind.TOP_LEVEL && owner.getNestingKind() != NestingKind.MEMBER) {
+                    return null; // captured variables
+                }
+            }
+            for (VariableElement p : m.getParameters()) {
+                String d = descriptor(p.asType());
+                if (d == null) {
+                    return null;
+                }
+                b.append(d);
+            }
+            String r = m.getKind() == ElementKind.CONSTRUCTOR ? "V" : descriptor(m.getReturnType());
+            return r == null ? null : b.append(')').append(r).toString();
+        }
+
+        private String descriptor(TypeMirror t) {
+            t = types.erasure(t);
+            switch (t.getKind()) {
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case CHAR: return "C";
+            case SHORT: return "S";
+            case INT: return "I";
+            case LONG: return "J";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case VOID: return "V";
+            case ARRAY:
+                String c = descriptor(((ArrayType) t).getComponentType());
+                return c == null ? null : "[" + c;
+            case DECLARED:
+                return "L" + internalName((TypeElement) ((DeclaredType) t).asElement()) + ";";
+            default:
+                return null;
+            }
+        }
+
+        /**
+         * Answers for the compiled types, and the others javac knows, from what javac knows, and reads the
+         * class files of the rest.
+         */
+        private final class SourceHierarchy extends ClassHierarchy {
+            SourceHierarchy(ClassLoader classFiles) {
+                super(classFiles);
+            }
+
+            @Override
+            public Set<String> getSupertypes(String type) throws IOException {
+                TypeElement t = elements.getTypeElement(type.replace('/', '.').replace('$', '.'));
+                if (t == null || !internalName(t).equals(type)) {
+                    return super.getSupertypes(type);
+                }
+                Set<String> all = new LinkedHashSet<>();
+                addSupertypes(t.asType(), all);
+                return Collections.unmodifiableSet(all);
+            }
+
+            private void addSupertypes(TypeMirror type, Set<String> all) {
+                for (TypeMirror s : types.directSupertypes(type)) {
+                    s = types.erasure(s);
+                    if (s.getKind() == TypeKind.DECLARED && all.add(internalName((TypeElement) types.asElement(s)))) {
+                        addSupertypes(s, all);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Visits a top-level class and the classes in it, keeping track of where it is like
+         * {@link Checker} does while reading a class file.
+         */
+        private final class Scanner extends TreePathScanner<Void, Void> {
+            private final RestrictionTable restrictions = checker.getRestrictionTable();
+            private final ErrorListener reporter = checker.getReporter();
+
+            /**
+             * Internal name of the class whose code is visited.
+             */
+            private String className;
+            private String methodName, methodDesc;
+
+            /**
+             * Types whose restrictions are suppressed by the class, and by the class and the method.
+             */
+            private Set<Type> classSkipped = Collections.emptySet(), skipped = Collections.emptySet();
+
+            private final Location location = new Location() {
+                @Override
+                public String getClassName() {
+                    return className.replace('/', '.');
+                }
+
+                @Override
+                public String getMethodName() {
+                    return methodName;
+                }
+
+                @Override
+                public String getMethodDescriptor() {
+                    return methodDesc;
+                }
+
+                @Override
+                public int getLineNumber() {
+                    long pos = trees.getSourcePositions().getStartPosition(unit, tree);
+                    return pos < 0 ? 0 : (int) unit.getLineMap().getLineNumber(pos);
+                }
+
+                @Override
+                public String toString() {
+                    return className + ':' + getLineNumber();
+                }
+
+                @Override
+                public ClassLoader getDependencyClassLoader() {
+                    return checker.dependencies;
+                }
+
+                @Override
+                public String getProperty(String key) {
+                    return properties.getProperty(key);
+                }
+
+                @Override
+                public ClassHierarchy getClassHierarchy() {
+                    return hierarchy;
+                }
+            };
+
+            @Override
+            public Void visitClass(ClassTree node, Void p) {
+                Element e = trees.getElement(getCurrentPath());
+                if (!(e instanceof TypeElement)) {
+                    return null; // could not be attributed
+                }
+                TypeElement type = (TypeElement) e;
+                String outerClass = className, outerMethod = methodName, outerDesc = methodDesc;
+                Set<Type> outerClassSkipped = classSkipped, outerSkipped = skipped;
+                try {
+                    className = internalName(type);
+                    methodName = null;
+                    methodDesc = null;
+                    // suppressions are not inherited by nested classes, which have class files of their own
+                    classSkipped = suppressed(type, Collections.emptySet());
+                    skipped = classSkipped;
+                    tree = node;
+                    String superName = typeName(type.getSuperclass());
+                    if (superName != null) {
+                        for (Restrictions r : restrictions.forType(superName, skipped)) {
+                            r.usedAsSuperType(location, reporter);
+                        }
+                    }
+                    for (TypeMirror i : type.getInterfaces()) {
+                        String intf = typeName(i);
+                        if (intf != null) {
+                            for (Restrictions r : restrictions.forType(intf, skipped)) {
+                                r.usedAsInterface(location, reporter);
+                            }
+                        }
+                    }
+                    if (type.getNestingKind() == NestingKind.ANONYMOUS) {
+                        checkSuperConstructor(node);
+                    }
+                    scan(node.getMembers(), p);
+                } finally {
+                    className = outerClass;
+                    methodName = outerMethod;
+                    methodDesc = outerDesc;
+                    classSkipped = outerClassSkipped;
+                    skipped = outerSkipped;
+                }
+                return null;
+            }
+
+            /**
+             * Checks the call of the constructor of the superclass in the constructor that javac generates
+             * for an anonymous class, which has no code of its own, as its arguments are those of the instantiation.
+             */
+            private void checkSuperConstructor(ClassTree node) {
+                ExecutableElement init = superConstructor(node);
+                if (init == null) {
+                    return;
+                }
+                String owner = referenced((TypeElement) init.getEnclosingElement());
+                String desc = descriptor(init);
+                if (desc == null || sameClassFile(owner)) {
+                    return;
+                }
+                String outerMethod = methodName;
+                try {
+                    tree = node;
+                    methodName = "<init>";
+                    for (Restrictions r : restrictions.forMethod(owner, "<init>", desc, skipped)) {
+                        r.invoked(location, reporter);
+                    }
+                } finally {
+                    methodName = outerMethod;
+                }
+            }
+
+            /**
+             * The constructor of the superclass that the generated constructor of an anonymous class calls, if found.
+             */
+            private ExecutableElement superConstructor(ClassTree node) {
+                TreePath classPath = getCurrentPath();
+                for (Tree member : node.getMembers()) {
+                    if (!(member instanceof MethodTree) || ((MethodTree) member).getBody() == null) {
+                        continue;
+                    }
+                    TreePath method = new TreePath(classPath, member);
+                    Element m = trees.getElement(method);
+                    if (m == null || m.getKind() != ElementKind.CONSTRUCTOR) {
+                        continue;
+                    }
+                    TreePath body = new TreePath(method, ((MethodTree) member).getBody());
+                    for (StatementTree s : ((MethodTree) member).getBody().getStatements()) {
+                        if (s instanceof ExpressionStatementTree
+                                && ((ExpressionStatementTree) s).getExpression() instanceof MethodInvocationTree) {
+                            TreePath call = new TreePath(new TreePath(body, s), ((ExpressionStatementTree) s).getExpression());
+                            Element e = trees.getElement(call);
+                            if (e != null && e.getKind() == ElementKind.CONSTRUCTOR) {
+                                return (ExecutableElement) e;
+                            }
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public Void visitMethod(MethodTree node, Void p) {
+                Element e = trees.getElement(getCurrentPath());
+                if (!(e instanceof ExecutableElement)) {
+                    return null;
+                }
+                if (e.getKind() == ElementKind.CONSTRUCTOR
+                        && ((TypeElement) e.getEnclosingElement()).getNestingKind() == NestingKind.ANONYMOUS) {
+                    return null; // generated, and checked with the class
+                }
+                String outerMethod = methodName, outerDesc = methodDesc;
+                Set<Type> outerSkipped = skipped;
+                try {
+                    methodName = methodName((ExecutableElement) e);
+                    methodDesc = descriptor((ExecutableElement) e);
+                    skipped = suppressed(e, classSkipped);
+                    scan(node.getBody(), p); // the rest has no code, as default values of annotation methods are constants
+                } finally {
+                    methodName = outerMethod;
+                    methodDesc = outerDesc;
+                    skipped = outerSkipped;
+                }
+                return null;
+            }
+
+            @Override
+            public Void visitVariable(VariableTree node, Void p) {
+                if (getCurrentPath().getParentPath().getLeaf() instanceof ClassTree) {
+                    // field initializers are part of the constructors or of the static initializer
+                    inInitializer(node.getModifiers().getFlags().contains(Modifier.STATIC), node.getInitializer());
+                } else {
+                    scan(node.getInitializer(), p);
+                }
+                return null;
+            }
+
+            @Override
+            public Void visitBlock(BlockTree node, Void p) {
+                if (getCurrentPath().getParentPath().getLeaf() instanceof ClassTree) {
+                    inInitializer(node.isStatic(), node);
+                    return null;
+                }
+                return super.visitBlock(node, p);
+            }
+
+            private void inInitializer(boolean isStatic, Tree code) {
+                String outerMethod = methodName, outerDesc = methodDesc;
+                try {
+                    methodName = isStatic ? "<clinit>" : "<init>";
+                    methodDesc = isStatic ? "()V" : null;
+                    scan(code, null);
+                } finally {
+                    methodName = outerMethod;
+                    methodDesc = outerDesc;
+                }
+            }
+
+            @Override
+            public Void visitAnnotation(AnnotationTree node, Void p) {
+                return null; // values are constants
+            }
+
+            @Override
+            public Void visitLambdaExpression(LambdaExpressionTree node, Void p) {
+                return null; // compiled into a synthetic method
+            }
+
+            @Override
+            public Void visitMemberReference(MemberReferenceTree node, Void p) {
+                return scan(node.getQualifierExpression(), p);
+            }
+
+            @Override
+            public Void visitNewClass(NewClassTree node, Void p) {
+                scan(node.getEnclosingExpression(), p);
+                scan(node.getArguments(), p);
+                if (node.getClassBody() != null) {
+                    // the anonymous class calls the constructor of its superclass, see visitClass
+                    return scan(node.getClassBody(), p);
+                }
+                Element e = trees.getElement(getCurrentPath());
+                if (!(e instanceof ExecutableElement)) {
+                    return null;
+                }
+                String owner = referenced((TypeElement) e.getEnclosingElement());
+                String desc = descriptor((ExecutableElement) e);
+                if (sameClassFile(owner)) {
+                    return null;
+                }
+                tree = node;
+                for (Restrictions r : restrictions.forType(owner, skipped)) {
+                    r.instantiated(location, reporter);
+                }
+                if (desc != null) {
+                    for (Restrictions r : restrictions.forMethod(owner, "<init>", desc, skipped)) {
+                        r.invoked(location, reporter);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void p) {
+                Element e = trees.getElement(getCurrentPath());
+                if (e instanceof ExecutableElement) {
+                    TreePath select = new TreePath(getCurrentPath(), node.getMethodSelect());
+                    String owner = qualifyingType(select, e);
+                    String desc = descriptor((ExecutableElement) e);
+                    if (owner != null && desc != null && !sameClassFile(owner)) {
+                        tree = node;
+                        for (Restrictions r : restrictions.forMethod(owner, methodName((ExecutableElement) e), desc, skipped)) {
+                            r.invoked(location, reporter);
+                        }
+                    }
+                }
+                return super.visitMethodInvocation(node, p);
+            }
+
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void p) {
+                checkField(node);
+                return super.visitIdentifier(node, p);
+            }
+
+            @Override
+            public Void visitMemberSelect(MemberSelectTree node, Void p) {
+                checkField(node);
+                return super.visitMemberSelect(node, p);
+            }
+
+            private void checkField(ExpressionTree node) {
+                Element e = trees.getElement(getCurrentPath());
+                if (e == null || (e.getKind() != ElementKind.FIELD && e.getKind() != ElementKind.ENUM_CONSTANT)
+                        || ((VariableElement) e).getConstantValue() != null) {
+                    return; // constants are copied into the class file
+                }
+                String name = e.getSimpleName().toString();
+                if (name.equals("this") || name.equals("super") || name.equals("class")) {
+                    return;
+                }
+                String owner = qualifyingType(getCurrentPath(), e);
+                if (owner == null || sameClassFile(owner)) {
+                    return;
+                }
+                tree = node;
+                List<Restrictions> rs = restrictions.forField(owner, name, skipped);
+                Tree parent = getCurrentPath().getParentPath().getLeaf();
+                boolean assigned = parent instanceof AssignmentTree && ((AssignmentTree) parent).getVariable() == node;
+                boolean updated = parent instanceof CompoundAssignmentTree && ((CompoundAssignmentTree) parent).getVariable() == node
+                        || isIncrementOrDecrement(parent) && ((UnaryTree) parent).getExpression() == node;
+                if (!assigned) {
+                    for (Restrictions r : rs) {
+                        r.read(location, reporter);
+                    }
+                }
+                if (assigned || updated) {
+                    for (Restrictions r : rs) {
+                        r.written(location, reporter);
+                    }
+                }
+            }
+
+            private boolean isIncrementOrDecrement(Tree t) {
+                switch (t.getKind()) {
+                case PREFIX_INCREMENT:
+                case PREFIX_DECREMENT:
+                case POSTFIX_INCREMENT:
+                case POSTFIX_DECREMENT:
+                    return true;
+                default:
+                    return false;
+                }
+            }
+
+            /**
+             * The internal name of the type that javac names as the owner of a member in the class file,
+             * or null if it is within the class file being written, or not a class.
+             *
+             * @param path
+             *      Path of the identifier or of the member selection that refers to the member.
+             */
+            private String qualifyingType(TreePath path, Element member) {
+                TypeElement declaring = (TypeElement) member.getEnclosingElement();
+                if (member.getKind() == ElementKind.CONSTRUCTOR) {
+                    return referenced(declaring);
+                }
+                Tree leaf = path.getLeaf();
+                if (leaf instanceof MemberSelectTree) {
+                    if (declaring.getQualifiedName().contentEquals(Object.class.getName())) {
+                        return "java/lang/Object";
+                    }
+                    ExpressionTree qualifier = ((MemberSelectTree) leaf).getExpression();
+                    return typeName(trees.getTypeMirror(new TreePath(path, qualifier)));
+                }
+                // an unqualified name is a member of an enclosing class, or imported
+                for (TreePath p = path; p != null; p = p.getParentPath()) {
+                    if (p.getLeaf() instanceof ClassTree) {
+                        Element c = trees.getElement(p);
+                        if (c != null && types.isSubtype(types.erasure(c.asType()), types.erasure(declaring.asType()))) {
+                            return null;
+                        }
+                    }
+                }
+                return referenced(declaring);
+            }
+
+            /**
+             * The internal name of the erasure of a type, or null if it is not a class or an interface.
+             */
+            private String typeName(TypeMirror t) {
+                if (t == null) {
+                    return null;
+                }
+                t = types.erasure(t);
+                return t.getKind() == TypeKind.DECLARED ? referenced((TypeElement) types.asElement(t)) : null;
+            }
+
+            private boolean sameClassFile(String owner) {
+                return Checker.sameClassFile(className, owner);
+            }
+
+            /**
+             * Adds the types in the {@link SuppressRestrictedWarnings} of an element to those suppressed around it.
+             */
+            private Set<Type> suppressed(Element e, Set<Type> around) {
+                List<TypeElement> own = classValues(e, SuppressRestrictedWarnings.class.getName());
+                if (own.isEmpty()) {
+                    return around;
+                }
+                Set<Type> all = new HashSet<>(around);
+                for (TypeElement t : own) {
+                    all.add(Type.getObjectType(internalName(t)));
+                }
+                return all;
+            }
+        }
+    }
+}
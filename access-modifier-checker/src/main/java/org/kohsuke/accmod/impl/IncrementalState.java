@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Results of a previous check, persisted between builds so that unchanged class files
+ * do not have to be inspected again.
+ *
+ * <p>
+ * Each class file is remembered by its size and timestamp together with the errors and warnings
+ * it produced. The whole state is tied to a description of the environment
+ * (dependencies, restrictions, configuration); if that changes, nothing is reused.
+ */
+final class IncrementalState {
+    private static final int FORMAT = 1;
+
+    private final String environment;
+
+    /**
+     * Results from the previous run, keyed by the path of the class file.
+     */
+    private final Map<String, Entry> previous;
+
+    /**
+     * Results of this run, which will be saved.
+     */
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private IncrementalState(String environment, Map<String, Entry> previous) {
+        this.environment = environment;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the state saved by {@link #save(File)}.
+     * If there is no saved state, or it was saved in a different environment, the state is empty.
+     *
+     * @param environment
+     *      Opaque description of everything other than the class file itself that influences its results.
+     */
+    static IncrementalState load(File file, String environment, ClassLoader dependencies, ClassHierarchy hierarchy,
+            Properties properties) throws IOException {
+        Map<String, Entry> previous = new ConcurrentHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() == FORMAT && in.readUTF().equals(environment)) {
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    String path = in.readUTF();
+                    long size = in.readLong();
+                    long lastModified = in.readLong();
+                    previous.put(path, new Entry(size, lastModified, RecordingErrorListener.read(in, dependencies, hierarchy, properties)));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // first run
+        } catch (IOException e) {
+            // corrupted or truncated; start over
+            previous.clear();
+        }
+        return new IncrementalState(environment, previous);
+    }
+
+    /**
+     * Obtains the results of the previous run for the given class file, if it has not changed since.
+     */
+    RecordingErrorListener get(File classFile) {
+        Entry e = previous.get(classFile.getPath());
+        if (e == null || e.size != classFile.length() || e.lastModified != classFile.lastModified()) {
+            return null;
+        }
+        current.put(classFile.getPath(), e);
+        return e.results;
+    }
+
+    /**
+     * Remembers the results of checking the given class file in this run.
+     */
+    void put(File classFile, RecordingErrorListener results) {
+        if (results.isPersistable()) {
+            current.put(classFile.getPath(), new Entry(classFile.length(), classFile.lastModified(), results));
+        }
+    }
+
+    /**
+     * Saves the results of this run. Class files that were not seen in this run are forgotten.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Path under the build directory")
+    void save(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null) {
+            Files.createDirectories(dir.toPath());
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(FORMAT);
+            out.writeUTF(environment);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Entry> e : current.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().size);
+                out.writeLong(e.getValue().lastModified);
+                e.getValue().results.write(out);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static final class Entry {
+        final long size;
+        final long lastModified;
+        final RecordingErrorListener results;
+
+        Entry(long size, long lastModified, RecordingErrorListener results) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.results = results;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+/**
+ * Where the checker logs to: Maven's log in the Maven plugin, and the console or javac elsewhere,
+ * which is all that keeps the checker from needing the Maven API when it does not run in Maven.
+ */
+interface Logger {
+    boolean isDebugEnabled();
+
+    void debug(String message);
+
+    void info(String message);
+
+    /**
+     * @param t
+     *      Null if there is none.
+     */
+    void warn(String message, Throwable t);
+
+    /**
+     * @param t
+     *      Null if there is none.
+     */
+    void error(String message, Throwable t);
+
+    default void warn(String message) {
+        warn(message, null);
+    }
+
+    default void error(String message) {
+        error(message, null);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+/**
+ * Reports errors and warnings to a {@link Logger}, and remembers whether there were errors.
+ */
+final class LoggingErrorListener implements ErrorListener {
+    /**
+     * Printed at the end when there were errors.
+     */
+    static final String FAILURE_MESSAGE = "Access modifier checks failed. See the details above";
+
+    private final Logger log;
+    private final boolean failOnError;
+    private volatile boolean failed;
+
+    /**
+     * @param failOnError
+     *      If false, errors are logged as warnings.
+     */
+    LoggingErrorListener(Logger log, boolean failOnError) {
+        this.log = log;
+        this.failOnError = failOnError;
+    }
+
+    @Override
+    public void onError(Throwable t, Location loc, String msg) {
+        String locMsg = loc+" "+msg;
+        if (failOnError) {
+            log.error(locMsg, t);
+        } else {
+            log.warn(locMsg, t);
+        }
+        failed = true;
+    }
+
+    @Override
+    public void onWarning(Throwable t, Location loc, String msg) {
+        log.warn(loc+" "+msg, t);
+    }
+
+    /**
+     * Whether {@link #onError(Throwable, Location, String)} was called.
+     */
+    boolean hasFailed() {
+        return failed;
+    }
+}
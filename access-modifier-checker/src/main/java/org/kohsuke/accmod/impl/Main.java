@@ -0,0 +1,423 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks built class directories, jar files or Jenkins plugins from the command line, without Maven.
+ *
+ * <pre>
+ * java -cp access-modifier-checker.jar:access-modifier-annotation.jar:access-modifier-suppressions.jar:annotation-indexer.jar:asm.jar \
+ *     org.kohsuke.accmod.impl.Main [options] target...
+ * </pre>
+ *
+ * Jar files are read in place. Errors are reported like {@link EnforcerMojo} does.
+ * The exit code is 0 if there are no errors, 1 if there are, and 2 if the check could not be done.
+ *
+ * <p>
+ * With {@code --batch}, each target is checked on its own against the classpath, such as many plugins against
+ * one Jenkins core. The restrictions of the classpath are loaded only once, and shared by the checks of the targets,
+ * which run in parallel.
+ */
+public final class Main {
+    static final String USAGE = "Usage: Main [options] target...\n"
+            + "Checks the class files of the targets, which are class directories, jar files or Jenkins plugins.\n"
+            + "Options:\n"
+            + "  -cp, --classpath PATH  Dependencies of the targets, separated by '" + File.pathSeparator + "'\n"
+            + "  -Dkey=value            Property made available to restriction checkers\n"
+            + "  --warn-only            Report errors as warnings and exit with 0\n"
+            + "  --batch                Check each target on its own against the classpath\n"
+            + "  --threads N            Number of targets checked at the same time in batch mode (default: processors)\n"
+            + "  --output DIR           In batch mode, also write the results of each target to DIR/<target>.txt,\n"
+            + "                         or DIR/<target>-<position>.txt if several targets have the same name\n"
+            + "  --usages FILE          Write every use of a restricted element by the targets to FILE\n"
+            + "Other uses:\n"
+            + "  Main --merge-usages OUTPUT FILE...  Merges files written by --usages\n"
+            + "  Main --query-usages FILE KEY        Prints the uses of the elements whose keys start with KEY,\n"
+            + "                                      such as a/b/C, a/b/C.field or a/b/C.method(I)V\n";
+
+    private final List<File> classPath = new ArrayList<>();
+    private final List<File> targets = new ArrayList<>();
+    private final Properties properties = new Properties();
+    private boolean failOnError = true;
+    private boolean batch;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File outputDir;
+    private UsageIndex usages;
+    private File usagesFile;
+
+    private Main() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, new ConsoleLogger()));
+    }
+
+    /**
+     * Runs the check as if from the command line.
+     *
+     * @return the exit code.
+     */
+    static int run(String[] args, Logger log) {
+        if (args.length > 0 && (args[0].equals("--merge-usages") || args[0].equals("--query-usages"))) {
+            return usages(args, log);
+        }
+        Main main = new Main();
+        String problem = main.parse(args);
+        if (problem != null) {
+            log.error(problem + "\n" + USAGE);
+            return 2;
+        }
+        try {
+            int exitCode = main.batch ? main.checkEach(log) : main.check(log);
+            if (main.usages != null) {
+                main.usages.write(main.usagesFile);
+            }
+            return exitCode;
+        } catch (IOException e) {
+            log.error("Failed to enforce @Restricted constraints", e);
+            return 2;
+        }
+    }
+
+    /**
+     * Merges or queries files written by {@code --usages}.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User-provided value for running the program")
+    private static int usages(String[] args, Logger log) {
+        try {
+            if (args[0].equals("--merge-usages")) {
+                if (args.length < 3) {
+                    log.error("Missing files to merge\n" + USAGE);
+                    return 2;
+                }
+                List<File> inputs = new ArrayList<>();
+                for (int i = 2; i < args.length; i++) {
+                    inputs.add(new File(args[i]));
+                }
+                UsageIndex.merge(inputs, new File(args[1]));
+            } else {
+                if (args.length != 3) {
+                    log.error("Expected a file and a key\n" + USAGE);
+                    return 2;
+                }
+                for (String use : UsageIndex.query(new File(args[1]), args[2])) {
+                    log.info(use);
+                }
+            }
+            return 0;
+        } catch (IOException e) {
+            log.error("Failed to read usages", e);
+            return 2;
+        }
+    }
+
+    /**
+     * @return a description of what is wrong with the arguments, or null if they are fine.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User-provided value for running the program")
+    private String parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-cp") || arg.equals("--classpath")) {
+                if (++i == args.length) {
+                    return "Missing value of " + arg;
+                }
+                for (String entry : args[i].split(File.pathSeparator)) {
+                    if (!entry.isEmpty()) {
+                        classPath.add(new File(entry));
+                    }
+                }
+            } else if (arg.startsWith("-D")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    properties.setProperty(arg.substring(2), "true");
+                } else {
+                    properties.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+                }
+            } else if (arg.equals("--warn-only")) {
+                failOnError = false;
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.equals("--threads") || arg.equals("--output") || arg.equals("--usages")) {
+                if (++i == args.length) {
+                    return "Missing value of " + arg;
+                }
+                if (arg.equals("--output")) {
+                    outputDir = new File(args[i]);
+                } else if (arg.equals("--usages")) {
+                    usagesFile = new File(args[i]);
+                    usages = new UsageIndex();
+                } else {
+                    try {
+                        threads = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException e) {
+                        return "Not a number: " + args[i];
+                    }
+                    if (threads < 1) {
+                        return "Not a number of threads: " + args[i];
+                    }
+                }
+            } else if (arg.startsWith("-")) {
+                return "Unknown option " + arg;
+            } else {
+                targets.add(new File(arg));
+            }
+        }
+        if (targets.isEmpty()) {
+            return "No target given";
+        }
+        for (File f : classPath) {
+            if (!f.exists()) {
+                return "No such file: " + f;
+            }
+        }
+        for (File f : targets) {
+            if (!f.exists()) {
+                return "No such file: " + f;
+            }
+        }
+        return null;
+    }
+
+    private int check(Logger log) throws IOException {
+        List<File> entries = new ArrayList<>(classPath);
+        entries.addAll(targets);
+        LoggingErrorListener listener = new LoggingErrorListener(log, failOnError);
+        long start = System.nanoTime();
+        try (ClassPath cp = new ClassPath(entries, Main.class.getClassLoader())) {
+            Checker checker = new Checker(cp.getClassLoader(), listener, properties, log, false);
+            checker.setUsageIndex(usages);
+            checker.getMetrics().classPathNanos.add(System.nanoTime() - start);
+            for (File f : classPath) {
+                ClassPath.Container c = cp.getContainer(f);
+                if (c != null) { // else not a jar file
+                    checker.loadRestrictions(RestrictionIndex.read(c), false);
+                }
+            }
+            for (File f : targets) {
+                checker.loadRestrictions(RestrictionIndex.read(target(cp, f)), true);
+            }
+            for (File f : targets) {
+                checker.check(target(cp, f));
+            }
+            log.info(checker.getMetrics().summary());
+        }
+        return exitCode(listener, log);
+    }
+
+    /**
+     * The opened target, which unlike the entries of the classpath cannot be left out.
+     */
+    private static ClassPath.Container target(ClassPath cp, File f) throws IOException {
+        ClassPath.Container c = cp.getContainer(f);
+        if (c == null) {
+            throw new IOException(f + " is neither a class directory nor a jar file");
+        }
+        return c;
+    }
+
+    private int exitCode(LoggingErrorListener listener, Logger log) {
+        if (listener.hasFailed()) {
+            if (failOnError) {
+                log.error(LoggingErrorListener.FAILURE_MESSAGE);
+                return 1;
+            }
+            log.warn(LoggingErrorListener.FAILURE_MESSAGE);
+        }
+        return 0;
+    }
+
+    /**
+     * Checks each target separately. Results are reported in the order of the targets.
+     * A target that cannot be checked is reported, and the others are still checked, but the exit code is then 2.
+     */
+    @SuppressFBWarnings(value = {"PATH_TRAVERSAL_IN", "PATH_TRAVERSAL_OUT"}, justification = "User-provided value for running the program")
+    private int checkEach(Logger log) throws IOException {
+        LoggingErrorListener listener = new LoggingErrorListener(log, failOnError);
+        try (ClassPath shared = new ClassPath(classPath, Main.class.getClassLoader())) {
+            Checker sharedChecker = new Checker(shared.getClassLoader(), listener, properties, log, false);
+            for (File f : classPath) {
+                ClassPath.Container c = shared.getContainer(f);
+                if (c != null) { // else not a jar file
+                    sharedChecker.loadRestrictions(RestrictionIndex.read(c), false);
+                }
+            }
+            RestrictionTable restrictions = sharedChecker.getRestrictionTable();
+            List<String> outputNames = outputNames();
+            if (outputDir != null) {
+                Files.createDirectories(outputDir.toPath());
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, targets.size()));
+            boolean failed = false;
+            try {
+                List<Future<Report>> reports = new ArrayList<>();
+                for (File target : targets) {
+                    reports.add(pool.submit(() -> checkOne(shared, restrictions, target, log)));
+                }
+                for (int i = 0; i < targets.size(); i++) {
+                    File target = targets.get(i);
+                    Report report;
+                    try {
+                        report = reports.get(i).get();
+                    } catch (ExecutionException e) {
+                        log.error("Could not check " + target, e.getCause());
+                        failed = true;
+                        continue;
+                    }
+                    log.info(target + ": " + report.summary);
+                    report.results.replay(listener);
+                    if (outputDir != null) {
+                        Files.write(new File(outputDir, outputNames.get(i)).toPath(), report.lines(), StandardCharsets.UTF_8);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            } finally {
+                pool.shutdownNow();
+            }
+            int exitCode = exitCode(listener, log);
+            return failed ? 2 : exitCode;
+        }
+    }
+
+    /**
+     * Names of the files that {@code --output} writes for the targets, in the same order:
+     * the name of the target and {@code .txt}, with the position of the target added if several have the same name.
+     */
+    private List<String> outputNames() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (File target : targets) {
+            counts.merge(target.getName(), 1, Integer::sum);
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            String name = targets.get(i).getName();
+            names.add(counts.get(name) > 1 ? name + "-" + (i + 1) + ".txt" : name + ".txt");
+        }
+        return names;
+    }
+
+    /**
+     * Checks one target, with the restrictions of the shared classpath already loaded.
+     */
+    private Report checkOne(ClassPath shared, RestrictionTable sharedRestrictions, File target, Logger log) throws IOException {
+        RecordingErrorListener results = new RecordingErrorListener();
+        try (ClassPath cp = new ClassPath(Collections.singletonList(target), shared.getClassLoader())) {
+            Checker checker = new Checker(cp.getClassLoader(), results, properties, log, false);
+            checker.setClassHierarchy(new ProcessCache.Hierarchy(cp));
+            checker.setUsageIndex(usages);
+            checker.setSharedRestrictions(sharedRestrictions);
+            ClassPath.Container c = target(cp, target);
+            checker.loadRestrictions(RestrictionIndex.read(c), true);
+            checker.check(c);
+            return new Report(results, checker.getMetrics().summary());
+        }
+    }
+
+    /**
+     * Logs to the console, like Maven does.
+     */
+    @SuppressFBWarnings(value = "INFORMATION_EXPOSURE_THROUGH_AN_ERROR_MESSAGE", justification = "Stack traces are for the user running the program")
+    private static final class ConsoleLogger implements Logger {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String message) {
+        }
+
+        @Override
+        public void info(String message) {
+            System.out.println("[info] " + message);
+        }
+
+        @Override
+        public void warn(String message, Throwable t) {
+            System.out.println("[warning] " + message);
+            if (t != null) {
+                t.printStackTrace(System.out);
+            }
+        }
+
+        @Override
+        public void error(String message, Throwable t) {
+            System.err.println("[error] " + message);
+            if (t != null) {
+                t.printStackTrace(System.err);
+            }
+        }
+    }
+
+    /**
+     * Results of one target in batch mode.
+     */
+    private static final class Report {
+        final RecordingErrorListener results;
+        final String summary;
+
+        Report(RecordingErrorListener results, String summary) {
+            this.results = results;
+            this.summary = summary;
+        }
+
+        /**
+         * The errors and warnings, one per line, followed by the summary.
+         */
+        List<String> lines() {
+            final List<String> lines = new ArrayList<>();
+            results.replay(new ErrorListener() {
+                @Override
+                public void onError(Throwable t, Location loc, String msg) {
+                    lines.add("[ERROR] " + loc + " " + msg + (t != null ? " (" + t + ")" : ""));
+                }
+
+                @Override
+                public void onWarning(Throwable t, Location loc, String msg) {
+                    lines.add("[WARNING] " + loc + " " + msg + (t != null ? " (" + t + ")" : ""));
+                }
+            });
+            lines.add(summary);
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * What was read from dependency jars, kept for as long as this plugin stays loaded and memory allows,
+ * so that builds in a long-lived JVM, such as the Maven daemon, do not read unchanged jars again.
+ *
+ * <p>
+ * Everything read from a jar is dropped together when the size or the timestamp of the jar changes,
+ * or when the garbage collector needs the memory. Nothing here keeps a jar open.
+ */
+final class ProcessCache {
+    /**
+     * From the absolute path of a jar.
+     */
+    private static final Map<String, Ref> JARS = new ConcurrentHashMap<>();
+
+    private static final ReferenceQueue<Jar> QUEUE = new ReferenceQueue<>();
+
+    private ProcessCache() {
+    }
+
+    /**
+     * What was read from one version of a jar.
+     */
+    private static final class Jar {
+        final long size;
+        final long lastModified;
+        volatile RestrictionIndex restrictions;
+
+        /**
+         * From the internal name of a class.
+         */
+        final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+
+        Jar(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class Ref extends SoftReference<Jar> {
+        final String path;
+
+        Ref(String path, Jar jar) {
+            super(jar, QUEUE);
+            this.path = path;
+        }
+    }
+
+    /**
+     * Obtains what was read from the current version of the given jar.
+     */
+    private static Jar get(File file) {
+        for (Reference<? extends Jar> r; (r = QUEUE.poll()) != null; ) {
+            JARS.remove(((Ref) r).path, r);
+        }
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Ref ref = JARS.get(path);
+        Jar jar = ref != null ? ref.get() : null;
+        if (jar == null || jar.size != size || jar.lastModified != lastModified) {
+            jar = new Jar(size, lastModified);
+            JARS.put(path, new Ref(path, jar));
+        }
+        return jar;
+    }
+
+    /**
+     * Obtains the restrictions of the given jar, from the cache if possible, or from the given reader otherwise.
+     */
+    static RestrictionIndex restrictions(ClassPath.Container container, SessionRestrictionCache.Reader reader) throws IOException {
+        if (!container.file.isFile()) {
+            return reader.read(container); // class directories change all the time
+        }
+        Jar jar = get(container.file);
+        RestrictionIndex index = jar.restrictions;
+        if (index == null) {
+            index = reader.read(container);
+            jar.restrictions = index;
+        }
+        return index;
+    }
+
+    /**
+     * {@link ClassHierarchy} that keeps the {@link ClassInfo} of classes in jars here.
+     */
+    static final class Hierarchy extends ClassHierarchy {
+        private final ClassPath classPath;
+
+        Hierarchy(ClassPath classPath) {
+            super(classPath.getClassLoader());
+            this.classPath = classPath;
+        }
+
+        @Override
+        protected ClassInfo read(String type) throws IOException {
+            String name = type + ".class";
+            ClassPath.Container container = classPath.find(name);
+            if (container == null || !container.file.isFile()) {
+                return super.read(type);
+            }
+            Jar jar = get(container.file);
+            ClassInfo info = jar.classes.get(type);
+            if (info == null) {
+                try (InputStream is = container.open(name)) {
+                    info = ClassInfo.read(new ClassReader(is));
+                }
+                jar.classes.put(type, info);
+            }
+            return info;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * {@link ErrorListener} that remembers what it was told, so that it can be replayed later
+ * into another {@link ErrorListener}.
+ *
+ * <p>
+ * Used to check classes concurrently while still reporting errors in a deterministic order.
+ * {@link Location}s are mutable during the scan, so they are copied when an event is recorded.
+ */
+final class RecordingErrorListener implements ErrorListener {
+    private final List<Event> events = new ArrayList<>();
+
+    @Override
+    public void onError(Throwable t, Location loc, String msg) {
+        events.add(new Event(true, t, snapshot(loc), msg));
+    }
+
+    @Override
+    public void onWarning(Throwable t, Location loc, String msg) {
+        events.add(new Event(false, t, snapshot(loc), msg));
+    }
+
+    boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Whether {@link #write(DataOutput)} can faithfully save what was recorded.
+     * Exceptions attached to events cannot be saved.
+     */
+    boolean isPersistable() {
+        for (Event e : events) {
+            if (e.t != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saves the recorded events. Only valid if {@link #isPersistable()}.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(events.size());
+        for (Event e : events) {
+            out.writeBoolean(e.error);
+            writeString(out, e.msg);
+            out.writeBoolean(e.loc != null);
+            if (e.loc != null) {
+                FixedLocation l = (FixedLocation) e.loc;
+                writeString(out, l.className);
+                writeString(out, l.methodName);
+                writeString(out, l.methodDescriptor);
+                out.writeInt(l.lineNumber);
+                writeString(out, l.description);
+            }
+        }
+    }
+
+    /**
+     * Loads events saved by {@link #write(DataOutput)}.
+     *
+     * @param dependencies
+     *      Reported by {@link Location#getDependencyClassLoader()} of the loaded events.
+     * @param hierarchy
+     *      Reported by {@link Location#getClassHierarchy()} of the loaded events.
+     * @param properties
+     *      Reported by {@link Location#getProperty(String)} of the loaded events.
+     */
+    static RecordingErrorListener read(DataInput in, ClassLoader dependencies, ClassHierarchy hierarchy, Properties properties)
+            throws IOException {
+        RecordingErrorListener r = new RecordingErrorListener();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            boolean error = in.readBoolean();
+            String msg = readString(in);
+            Location loc = null;
+            if (in.readBoolean()) {
+                loc = new FixedLocation(readString(in), readString(in), readString(in), in.readInt(), readString(in),
+                        dependencies, hierarchy, properties);
+            }
+            r.events.add(new Event(error, null, loc, msg));
+        }
+        return r;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Sends all the recorded events, in the order they were received, to the given listener.
+     */
+    void replay(ErrorListener listener) {
+        for (Event e : events) {
+            if (e.error) {
+                listener.onError(e.t, e.loc, e.msg);
+            } else {
+                listener.onWarning(e.t, e.loc, e.msg);
+            }
+        }
+    }
+
+    private static Location snapshot(Location loc) {
+        return loc == null ? null : new FixedLocation(loc);
+    }
+
+    private static final class Event {
+        final boolean error;
+        final Throwable t;
+        final Location loc;
+        final String msg;
+
+        Event(boolean error, Throwable t, Location loc, String msg) {
+            this.error = error;
+            this.t = t;
+            this.loc = loc;
+            this.msg = msg;
+        }
+    }
+
+    /**
+     * Immutable copy of a {@link Location} at the time an event was recorded.
+     */
+    private static final class FixedLocation implements Location {
+        private final String className, methodName, methodDescriptor, description;
+        private final int lineNumber;
+        private final ClassLoader dependencies;
+        private final Location base;
+        private final ClassHierarchy hierarchy;
+        private final Properties properties;
+
+        FixedLocation(Location base) {
+            this.className = base.getClassName();
+            this.methodName = base.getMethodName();
+            this.methodDescriptor = base.getMethodDescriptor();
+            this.lineNumber = base.getLineNumber();
+            this.description = base.toString();
+            this.dependencies = base.getDependencyClassLoader();
+            this.base = base;
+            this.hierarchy = null;
+            this.properties = null;
+        }
+
+        FixedLocation(String className, String methodName, String methodDescriptor, int lineNumber, String description,
+                ClassLoader dependencies, ClassHierarchy hierarchy, Properties properties) {
+            this.className = className;
+            this.methodName = methodName;
+            this.methodDescriptor = methodDescriptor;
+            this.lineNumber = lineNumber;
+            this.description = description;
+            this.dependencies = dependencies;
+            this.base = null;
+            this.hierarchy = hierarchy;
+            this.properties = properties;
+        }
+
+        @Override
+        public String getClassName() {
+            return className;
+        }
+
+        @Override
+        public String getMethodName() {
+            return methodName;
+        }
+
+        @Override
+        public String getMethodDescriptor() {
+            return methodDescriptor;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+
+        @Override
+        public ClassLoader getDependencyClassLoader() {
+            return dependencies;
+        }
+
+        @Override
+        public String getProperty(String key) {
+            return base != null ? base.getProperty(key) : properties.getProperty(key);
+        }
+
+        /**
+         * The one of the checker, and not one that would read the class files again.
+         * It is only asked of the recorded location when needed, as asking tells the checker that the results used it.
+         */
+        @Override
+        public ClassHierarchy getClassHierarchy() {
+            return base != null ? base.getClassHierarchy() : hierarchy;
+        }
+    }
+}
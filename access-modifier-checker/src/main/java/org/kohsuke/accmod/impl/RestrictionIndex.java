@@ -0,0 +1,406 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jvnet.hudson.annotation_indexer.Index;
+import org.kohsuke.accmod.AccessRestriction;
+import org.kohsuke.accmod.Restricted;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * {@link Restricted} annotations found in a jar file or a class directory, before they are
+ * turned into {@link Restrictions}.
+ *
+ * <p>
+ * They are taken from the manifest written by {@link RestrictionManifestProcessor} when it lists a class,
+ * and from the class file otherwise.
+ *
+ * <p>
+ * This only consists of strings, so it can be cached and shared between {@link Checker}s,
+ * unless it was read by {@link #readLazily(ClassPath.Container)}.
+ */
+final class RestrictionIndex {
+    /**
+     * Where the annotation indexer lists the classes that use {@link Restricted}.
+     */
+    static final String INDEX = "META-INF/services/annotations/" + Restricted.class.getName();
+
+    private static final String RESTRICTED_DESCRIPTOR = Type.getDescriptor(Restricted.class);
+
+    /**
+     * From the restricted key (see {@link Checker}) to the class names of the {@link AccessRestriction}s placed on it.
+     */
+    private final Map<String, List<String>> restrictions = new LinkedHashMap<>();
+
+    /**
+     * Problems found while building this index, which are reported every time it is loaded.
+     */
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * Internal names of the listed classes whose class files are to be parsed by {@link #parse(String)} when needed.
+     */
+    private final List<String> unparsed = new ArrayList<>();
+
+    /**
+     * Where {@link #unparsed} classes are read from.
+     */
+    private ClassPath.Container source;
+
+    private RestrictionIndex() {
+    }
+
+    Map<String, List<String>> getRestrictions() {
+        return Collections.unmodifiableMap(restrictions);
+    }
+
+    List<String> getWarnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+
+    List<String> getUnparsed() {
+        return Collections.unmodifiableList(unparsed);
+    }
+
+    /**
+     * Restrictions that were found by other means, such as in source code.
+     *
+     * @param restrictions
+     *      From the restricted key to the class names of the {@link AccessRestriction}s placed on it.
+     */
+    static RestrictionIndex of(Map<String, List<String>> restrictions) {
+        RestrictionIndex index = new RestrictionIndex();
+        index.restrictions.putAll(restrictions);
+        return index;
+    }
+
+    /**
+     * Reads the restrictions of the classes listed by the annotation indexer in the given opened jar file or class directory.
+     */
+    static RestrictionIndex read(ClassPath.Container entry) throws IOException {
+        return read(entry, false);
+    }
+
+    /**
+     * Like {@link #read(ClassPath.Container)}, but leaves the class files of the listed classes
+     * for {@link #parse(String)}, so that only the ones that are needed get parsed.
+     * The container must stay open for as long as the index is used.
+     */
+    static RestrictionIndex readLazily(ClassPath.Container entry) throws IOException {
+        return read(entry, true);
+    }
+
+    private static RestrictionIndex read(ClassPath.Container entry, boolean lazily) throws IOException {
+        RestrictionIndex index = new RestrictionIndex();
+        if (lazily) {
+            index.source = entry; // not kept otherwise, as the index may outlive it in a cache
+        }
+        InputStream list = entry.open(INDEX);
+        if (list == null) {
+            return index;
+        }
+        List<String> classNames = readClassNames(list);
+        InputStream manifestFile = entry.open(RestrictionManifestProcessor.MANIFEST);
+        Map<String, Map<String, List<String>>> manifest = manifestFile != null ? readManifest(manifestFile) : Collections.emptyMap();
+        for (String className : classNames) {
+            RestrictionsParsedEvent event = new RestrictionsParsedEvent();
+            event.begin();
+            int before = index.restrictions.size();
+            if (index.addFromManifest(manifest, className)) {
+                parsed(event, entry.file, className, index.restrictions.size() - before, true);
+                continue;
+            }
+            String type = className.replace('.', '/');
+            if (lazily) {
+                if (entry.has(type + ".class")) {
+                    index.unparsed.add(type);
+                } else {
+                    index.warnings.add("Failed to find class file for " + className);
+                }
+                continue;
+            }
+            try (InputStream is = entry.open(type + ".class")) {
+                if (is == null) {
+                    index.warnings.add("Failed to find class file for " + className);
+                    continue;
+                }
+                parse(is, index.restrictions);
+            }
+            parsed(event, entry.file, className, index.restrictions.size() - before, false);
+        }
+        return index;
+    }
+
+    /**
+     * Parses the class file of one of the {@linkplain #getUnparsed() unparsed} classes.
+     *
+     * @return
+     *      From the restricted key to the class names of the {@link AccessRestriction}s placed on it,
+     *      for the class and its members.
+     */
+    Map<String, List<String>> parse(String type) throws IOException {
+        RestrictionsParsedEvent event = new RestrictionsParsedEvent();
+        event.begin();
+        Map<String, List<String>> found = new LinkedHashMap<>();
+        try (InputStream is = source.open(type + ".class")) {
+            if (is == null) {
+                throw new FileNotFoundException(type + ".class in " + source.file);
+            }
+            parse(is, found);
+        }
+        parsed(event, source.file, type.replace('/', '.'), found.size(), false);
+        return found;
+    }
+
+    /**
+     * Reads the restrictions of the classes listed by the annotation indexer in the given class loader.
+     *
+     * @param classFiles
+     *      Where the class files of the listed classes are searched.
+     */
+    static RestrictionIndex read(ClassLoader cl, ClassLoader classFiles) throws IOException {
+        RestrictionIndex index = new RestrictionIndex();
+        Map<String, Map<String, List<String>>> manifest = new HashMap<>();
+        for (URL url : Collections.list(cl.getResources(RestrictionManifestProcessor.MANIFEST))) {
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false); // so that a jar: URL does not leave the jar open
+            manifest.putAll(readManifest(connection.getInputStream()));
+        }
+        for (String className : Index.listClassNames(Restricted.class, cl)) {
+            RestrictionsParsedEvent event = new RestrictionsParsedEvent();
+            event.begin();
+            int before = index.restrictions.size();
+            if (index.addFromManifest(manifest, className)) {
+                parsed(event, null, className, index.restrictions.size() - before, true);
+                continue;
+            }
+            try (InputStream is = classFiles.getResourceAsStream(className.replace('.', '/') + ".class")) {
+                if (is == null) {
+                    index.warnings.add("Failed to find class file for " + className);
+                    continue;
+                }
+                parse(is, index.restrictions);
+            }
+            parsed(event, null, className, index.restrictions.size() - before, false);
+        }
+        return index;
+    }
+
+    /**
+     * Commits the event for a class whose restrictions were just read, if it is being recorded.
+     *
+     * @param keys
+     *      Number of restricted elements found in the class.
+     */
+    private static void parsed(RestrictionsParsedEvent event, File source, String className, int keys, boolean fromManifest) {
+        if (event.shouldCommit()) {
+            event.source = source != null ? source.getPath() : null;
+            event.className = className;
+            event.keys = keys;
+            event.fromManifest = fromManifest;
+            event.commit();
+        }
+    }
+
+    private static List<String> readClassNames(InputStream in) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    names.add(line);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Reads the manifest written by {@link RestrictionManifestProcessor}.
+     *
+     * @return
+     *      From the internal name of a type to the restrictions on it and its members, keyed like {@link #restrictions}.
+     */
+    private static Map<String, Map<String, List<String>>> readManifest(InputStream in) throws IOException {
+        Map<String, Map<String, List<String>>> manifest = new HashMap<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    continue;
+                }
+                String key = line.substring(0, tab);
+                int dot = key.indexOf('.');
+                String owner = dot < 0 ? key : key.substring(0, dot);
+                List<String> types = tab + 1 == line.length()
+                        ? new ArrayList<>() : new ArrayList<>(Arrays.asList(line.substring(tab + 1).split(",")));
+                manifest.computeIfAbsent(owner, k -> new LinkedHashMap<>()).put(key, types);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Takes the restrictions of the given class from the manifest, if it lists them.
+     *
+     * @return
+     *      false if the class file has to be parsed instead.
+     */
+    private boolean addFromManifest(Map<String, Map<String, List<String>>> manifest, String className) {
+        Map<String, List<String>> entries = manifest.get(className.replace('.', '/'));
+        if (entries == null) {
+            return false;
+        }
+        restrictions.putAll(entries);
+        return true;
+    }
+
+    /**
+     * Collects {@link Restricted} annotations from a class file.
+     */
+    private static void parse(InputStream classFile, final Map<String, List<String>> restrictions) throws IOException {
+        new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9) {
+            private String className;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                this.className = name;
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return onAnnotationFor(className, desc);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, final String name, String desc, String signature, Object value) {
+                return new FieldVisitor(Opcodes.ASM9) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return onAnnotationFor(className + '.' + name, desc);
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, final String methodName, final String methodDesc, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return onAnnotationFor(className + '.' + methodName + methodDesc, desc);
+                    }
+                };
+            }
+
+            /**
+             * Parse {@link Restricted} annotation on some annotated element.
+             */
+            private AnnotationVisitor onAnnotationFor(final String keyName, String desc) {
+                if (RESTRICTED_DESCRIPTOR.equals(desc)) {
+                    final List<String> types = new ArrayList<>();
+                    return new AnnotationVisitor(Opcodes.ASM9) {
+                        @Override
+                        public void visit(String name, Object value) {
+                            types.add(((Type) value).getClassName());
+                        }
+
+                        @Override
+                        public AnnotationVisitor visitArray(String name) {
+                            return this;
+                        }
+
+                        @Override
+                        public void visitEnd() {
+                            restrictions.put(keyName, types);
+                        }
+                    };
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE);
+    }
+
+    /**
+     * Saves this index, to be restored by {@link #read(DataInput)}.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(restrictions.size());
+        for (Map.Entry<String, List<String>> e : restrictions.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeInt(e.getValue().size());
+            for (String type : e.getValue()) {
+                out.writeUTF(type);
+            }
+        }
+        out.writeInt(warnings.size());
+        for (String w : warnings) {
+            out.writeUTF(w);
+        }
+    }
+
+    static RestrictionIndex read(DataInput in) throws IOException {
+        RestrictionIndex index = new RestrictionIndex();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            String key = in.readUTF();
+            int m = in.readInt();
+            List<String> types = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                types.add(in.readUTF());
+            }
+            index.restrictions.put(key, types);
+        }
+        n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            index.warnings.add(in.readUTF());
+        }
+        return index;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps {@link RestrictionIndex}es of jar files in a directory, so that later builds
+ * do not have to parse the class files of the same jar again.
+ *
+ * <p>
+ * An entry is identified by the path of the jar, and is used only while the size and the timestamp
+ * of the jar are the same as when it was written. The directory can be shared by concurrent builds.
+ */
+final class RestrictionIndexCache {
+    private static final int FORMAT = 1;
+
+    private final File dir;
+
+    RestrictionIndexCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Obtains the index of the given jar, from the cache if possible.
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User-provided cache directory")
+    RestrictionIndex get(ClassPath.Container container) throws IOException {
+        File jar = container.file;
+        if (!jar.isFile()) {
+            return RestrictionIndex.read(container); // class directories change all the time
+        }
+        String path = jar.getAbsolutePath();
+        long size = jar.length();
+        long lastModified = jar.lastModified();
+        File entry = new File(dir, hash(path) + ".idx");
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry.toPath())))) {
+            if (in.readInt() == FORMAT && in.readUTF().equals(path) && in.readLong() == size && in.readLong() == lastModified) {
+                return RestrictionIndex.read(in);
+            }
+        } catch (NoSuchFileException e) {
+            // not cached yet
+        } catch (IOException e) {
+            // corrupted; overwrite it below
+        }
+
+        RestrictionIndex index = RestrictionIndex.read(container);
+        try {
+            Files.createDirectories(dir.toPath());
+            File tmp = File.createTempFile(entry.getName(), ".tmp", dir);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                    out.writeInt(FORMAT);
+                    out.writeUTF(path);
+                    out.writeLong(size);
+                    out.writeLong(lastModified);
+                    index.write(out);
+                }
+                Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        } catch (IOException e) {
+            // the cache is only an optimization; the index is still good
+        }
+        return index;
+    }
+
+    private static String hash(String path) {
+        try {
+            StringBuilder b = new StringBuilder();
+            for (byte x : MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8))) {
+                b.append(String.format("%02x", x));
+            }
+            return b.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
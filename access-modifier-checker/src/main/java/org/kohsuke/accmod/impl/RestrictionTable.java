@@ -0,0 +1,560 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.kohsuke.accmod.AccessRestriction;
+import org.objectweb.asm.Type;
+
+/**
+ * Loaded {@link Restrictions}, grouped by the type that declares them.
+ *
+ * <p>
+ * A lookup returns the restrictions of the element itself, followed by the restrictions of the enclosing types
+ * that {@linkplain AccessRestriction#appliesToNested() apply to nested elements}, innermost first.
+ * The latter are worked out once per type after restrictions are loaded, rather than on every lookup,
+ * and types without any restriction in them or around them are answered without any work.
+ *
+ * <p>
+ * Restrictions of a type can also be {@linkplain #defer(String, Deferred) deferred} until the first lookup
+ * that involves the type or a type nested in it.
+ *
+ * <p>
+ * A table can be layered on a base table, such as one with the restrictions of a classpath that several checks share.
+ * Lookups of types that this table has nothing for go to the base; the two are not expected to have the same types.
+ *
+ * <p>
+ * Lookups can be made concurrently, but not while restrictions are being added or deferred.
+ */
+final class RestrictionTable {
+    /**
+     * Where lookups of types that this table has nothing for go, or null.
+     */
+    private final RestrictionTable base;
+
+    /**
+     * From the internal name of a type to the restrictions on it and its members.
+     */
+    private final Map<String, Owner> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Types whose restrictions are not loaded yet.
+     */
+    private final Map<String, Deferred> deferred = new ConcurrentHashMap<>();
+
+    /**
+     * Types for which neither they nor their enclosing types have {@link #deferred} restrictions any more,
+     * so that lookups do not have to go through the enclosing types again.
+     */
+    private final Set<String> demanded = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether restrictions were added since the results of lookups were last worked out.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Results of {@link #nested(String)} for types that do not have restrictions of their own,
+     * such as nested classes of restricted types.
+     */
+    private final Map<String, List<Restrictions>> undeclared = new ConcurrentHashMap<>();
+
+    /**
+     * Kept in a field so that looking up {@link #undeclared} does not create a lambda every time.
+     */
+    private final Function<String, List<Restrictions>> computeNested = this::computeNested;
+
+    RestrictionTable() {
+        this(null);
+    }
+
+    /**
+     * @param base
+     *      Where lookups of types that this table has nothing for go, which must not change any more.
+     */
+    RestrictionTable(RestrictionTable base) {
+        this.base = base;
+    }
+
+    /**
+     * Adds the restrictions of an element, replacing any that were added for it before.
+     *
+     * @param key
+     *      See {@link Checker} for the format.
+     */
+    void put(String key, Restrictions r) {
+        owners.computeIfAbsent(owner(key), Owner::new).add(key, r);
+        dirty = true;
+    }
+
+    /**
+     * Creates the restrictions of a type and its members when they are first needed.
+     */
+    interface Deferred {
+        /**
+         * @return
+         *      From the key, in the format of {@link Checker}, to the restrictions of the element.
+         *      All the keys are of the deferred type or its members.
+         */
+        Map<String, Restrictions> load();
+    }
+
+    /**
+     * Adds the restrictions of a type and its members the first time a lookup involves the type,
+     * as the type itself, the owner of a member, or a type that encloses the one looked up.
+     * They replace any that were added for the same elements before.
+     *
+     * @param type
+     *      Internal name of a type.
+     */
+    void defer(String type, Deferred d) {
+        demanded.clear();
+        deferred.merge(type, d, (before, after) -> () -> {
+            Map<String, Restrictions> all = new LinkedHashMap<>(before.load());
+            all.putAll(after.load());
+            return all;
+        });
+    }
+
+    /**
+     * The type part of a key in the format of {@link Checker}.
+     */
+    static String owner(String key) {
+        int dot = key.indexOf('.');
+        return dot < 0 ? key : key.substring(0, dot);
+    }
+
+    /**
+     * Restrictions that apply to instantiating or extending the given type.
+     *
+     * @param type
+     *      Internal name of a type.
+     * @param skippedTypes
+     *      Types whose restrictions are suppressed at the place of use.
+     */
+    List<Restrictions> forType(String type, Set<Type> skippedTypes) {
+        if (base != null && !appliesHere(type)) {
+            return base.forType(type, skippedTypes);
+        }
+        demand(type);
+        if (!skippedTypes.isEmpty()) {
+            return walk(type, skippedTypes);
+        }
+        resolveIfDirty();
+        Owner o = owners.get(type);
+        if (o != null) {
+            return o.resolved;
+        }
+        return nested(type); // only the restrictions of the enclosing types, as it has none of its own
+    }
+
+    /**
+     * Restrictions that apply to accessing a field.
+     *
+     * @param type
+     *      Internal name of the type that owns the field.
+     * @param skippedTypes
+     *      Types whose restrictions are suppressed at the place of use.
+     */
+    List<Restrictions> forField(String type, String name, Set<Type> skippedTypes) {
+        if (base != null && !appliesHere(type)) {
+            return base.forField(type, name, skippedTypes);
+        }
+        demand(type);
+        if (!skippedTypes.isEmpty()) {
+            return walk(type + '.' + name, skippedTypes);
+        }
+        resolveIfDirty();
+        Owner o = owners.get(type);
+        if (o == null) {
+            return nested(type);
+        }
+        Member m = o.fields.get(name);
+        return m != null ? m.resolved : o.nested;
+    }
+
+    /**
+     * Restrictions that apply to invoking a method.
+     *
+     * @param type
+     *      Internal name of the type that owns the method.
+     * @param desc
+     *      Method descriptor.
+     * @param skippedTypes
+     *      Types whose restrictions are suppressed at the place of use.
+     */
+    List<Restrictions> forMethod(String type, String name, String desc, Set<Type> skippedTypes) {
+        if (base != null && !appliesHere(type)) {
+            return base.forMethod(type, name, desc, skippedTypes);
+        }
+        demand(type);
+        if (!skippedTypes.isEmpty()) {
+            return walk(type + '.' + name + desc, skippedTypes);
+        }
+        resolveIfDirty();
+        Owner o = owners.get(type);
+        if (o == null) {
+            return nested(type);
+        }
+        Map<String, Member> overloads = o.methods.get(name);
+        Member m = overloads != null ? overloads.get(desc) : null;
+        return m != null ? m.resolved : o.nested;
+    }
+
+    /**
+     * Whether any lookup involving the given type, as the type itself or as the owner of a member,
+     * can return restrictions.
+     *
+     * @param type
+     *      Internal name of a type.
+     */
+    boolean mayApplyTo(String type) {
+        return appliesHere(type) || base != null && base.mayApplyTo(type);
+    }
+
+    /**
+     * Like {@link #mayApplyTo(String)}, but without the {@link #base}.
+     * If false, every lookup involving the type finds nothing in this table.
+     */
+    private boolean appliesHere(String type) {
+        demand(type);
+        resolveIfDirty();
+        return owners.containsKey(type) || !nested(type).isEmpty();
+    }
+
+    /**
+     * Restrictions of the given type and its enclosing types that apply to the elements nested in them.
+     */
+    private List<Restrictions> nested(String type) {
+        if (type == null) {
+            return Collections.emptyList();
+        }
+        Owner o = owners.get(type);
+        if (o != null) {
+            return o.nested;
+        }
+        if (type.indexOf('$') < 0) {
+            return Collections.emptyList(); // the common case: a type with nothing restricted around it
+        }
+        return undeclared.computeIfAbsent(type, computeNested);
+    }
+
+    private List<Restrictions> computeNested(String type) {
+        List<Restrictions> rs = new ArrayList<>();
+        for (String t = type; t != null; t = outer(t)) {
+            Owner o = owners.get(t);
+            if (o != null && o.appliesToNested != null) {
+                rs.add(o.appliesToNested);
+            }
+        }
+        return rs.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(rs);
+    }
+
+    /**
+     * The type enclosing the given one, going by its name, or null.
+     */
+    private static String outer(String type) {
+        int idx = type.lastIndexOf('$');
+        return idx < 0 ? null : type.substring(0, idx);
+    }
+
+    /**
+     * Loads the deferred restrictions that a lookup involving the given type may need.
+     */
+    private void demand(String type) {
+        if (deferred.isEmpty() || demanded.contains(type)) {
+            return;
+        }
+        for (String t = type; t != null; t = outer(t)) {
+            if (deferred.containsKey(t)) {
+                load(type);
+                break;
+            }
+        }
+        demanded.add(type);
+    }
+
+    /**
+     * Loads the deferred restrictions of the given type and its enclosing types, outermost first,
+     * so that each {@link Owner} is resolved against the ones around it before lookups can see it.
+     * Types nested in these are never loaded before them, so what was worked out for them stays valid.
+     */
+    private synchronized void load(String type) {
+        resolveIfDirty();
+        Deque<String> chain = new ArrayDeque<>();
+        for (String t = type; t != null; t = outer(t)) {
+            chain.push(t);
+        }
+        for (String t : chain) {
+            Deferred d = deferred.get(t);
+            if (d == null) {
+                continue;
+            }
+            Owner o = new Owner(t);
+            Owner existing = owners.get(t);
+            if (existing != null) {
+                o.copy(existing);
+            }
+            for (Map.Entry<String, Restrictions> e : d.load().entrySet()) {
+                o.add(e.getKey(), e.getValue());
+            }
+            o.appliesToNested = appliesToNested(o.own);
+            List<Restrictions> outerNested = nested(outer(t));
+            o.nested = Owner.prepend(o.appliesToNested, outerNested);
+            o.resolve(outerNested);
+            owners.put(t, o);
+            // only now, as lookups on other threads that no longer find the type deferred go by what is loaded
+            deferred.remove(t);
+        }
+    }
+
+    private void resolveIfDirty() {
+        if (dirty) {
+            synchronized (this) {
+                if (dirty) {
+                    undeclared.clear();
+                    for (Owner o : owners.values()) {
+                        o.appliesToNested = appliesToNested(o.own);
+                    }
+                    for (Owner o : owners.values()) {
+                        o.nested = computeNested(o.name);
+                    }
+                    for (Owner o : owners.values()) {
+                        o.resolve(outer(o.name) == null ? Collections.emptyList() : computeNested(outer(o.name)));
+                    }
+                    dirty = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * The part of the given restrictions of a type that applies to nested elements, or null.
+     */
+    private static Restrictions appliesToNested(Restrictions own) {
+        if (own == null) {
+            return null;
+        }
+        List<AccessRestriction> applicable = new ArrayList<>();
+        for (AccessRestriction ar : own) {
+            if (ar.appliesToNested()) {
+                applicable.add(ar);
+            }
+        }
+        return applicable.isEmpty() ? null : new Restrictions(own.target, applicable);
+    }
+
+    /**
+     * Looks up the restrictions by walking up the enclosing elements one at a time,
+     * stopping at the first one that is skipped.
+     * Only used when some restrictions are suppressed, which is rare.
+     */
+    private List<Restrictions> walk(String keyName, Set<Type> skippedTypes) {
+        resolveIfDirty();
+        // the restrictions of the element itself are not used when types are skipped
+        List<Restrictions> rs = new ArrayList<>();
+        int idx = Integer.MAX_VALUE;
+        while (true) {
+            int newIdx = keyName.lastIndexOf('.', idx);
+            if (newIdx == -1) {
+                newIdx = keyName.lastIndexOf('$', idx);
+                if (newIdx == -1) {
+                    break;
+                }
+            }
+            idx = newIdx;
+            keyName = keyName.substring(0, idx);
+            if (skippedTypes.contains(Type.getObjectType(keyName))) {
+                // We have hit a type that should be skipped - do not add it to the restrictions
+                break;
+            }
+            Owner o = owners.get(keyName);
+            if (o != null && o.appliesToNested != null) {
+                rs.add(o.appliesToNested);
+            }
+        }
+        return rs;
+    }
+
+    /**
+     * Feeds the restrictions into the given digest, so that a change in them can be detected.
+     */
+    void digest(MessageDigest digest) {
+        if (base != null) {
+            base.digest(digest);
+        }
+        for (String type : new ArrayList<>(deferred.keySet())) {
+            demand(type);
+        }
+        Map<String, Restrictions> all = new TreeMap<>();
+        for (Owner o : owners.values()) {
+            if (o.own != null) {
+                all.put(o.name, o.own);
+            }
+            for (Map.Entry<String, Member> f : o.fields.entrySet()) {
+                all.put(o.name + '.' + f.getKey(), f.getValue().restrictions);
+            }
+            for (Map.Entry<String, Map<String, Member>> overloads : o.methods.entrySet()) {
+                for (Map.Entry<String, Member> m : overloads.getValue().entrySet()) {
+                    all.put(o.name + '.' + overloads.getKey() + m.getKey(), m.getValue().restrictions);
+                }
+            }
+        }
+        for (Map.Entry<String, Restrictions> e : all.entrySet()) {
+            digest.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) (e.getValue().target.isInTheInspectedModule() ? 1 : 0));
+            for (AccessRestriction ar : e.getValue()) {
+                digest.update(ar.getClass().getName().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+    }
+
+    /**
+     * A type that has restrictions on itself or on its members.
+     */
+    private static final class Owner {
+        final String name;
+        Restrictions own;
+
+        /**
+         * From the field name.
+         */
+        final Map<String, Member> fields = new HashMap<>();
+
+        /**
+         * From the method name, then from the method descriptor, so that a lookup does not need to build a key.
+         */
+        final Map<String, Map<String, Member>> methods = new HashMap<>();
+
+        /**
+         * Subset of {@link #own} that applies to nested elements, or null.
+         */
+        Restrictions appliesToNested;
+
+        /**
+         * Result of {@link RestrictionTable#nested(String)} for this type.
+         */
+        List<Restrictions> nested;
+
+        /**
+         * Result of {@link RestrictionTable#forType(String, Set)} for this type.
+         */
+        List<Restrictions> resolved;
+
+        Owner(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds the restrictions of this type or of one of its members.
+         *
+         * @param key
+         *      See {@link Checker} for the format.
+         */
+        void add(String key, Restrictions r) {
+            int dot = key.indexOf('.');
+            if (dot < 0) {
+                own = r;
+            } else {
+                int paren = key.indexOf('(', dot);
+                if (paren < 0) {
+                    fields.put(key.substring(dot + 1), new Member(r));
+                } else {
+                    methods.computeIfAbsent(key.substring(dot + 1, paren), k -> new HashMap<>()).put(key.substring(paren), new Member(r));
+                }
+            }
+        }
+
+        /**
+         * Adds the restrictions of another instance for the same type, but not what was worked out from them.
+         */
+        void copy(Owner o) {
+            own = o.own;
+            for (Map.Entry<String, Member> f : o.fields.entrySet()) {
+                fields.put(f.getKey(), new Member(f.getValue().restrictions));
+            }
+            for (Map.Entry<String, Map<String, Member>> overloads : o.methods.entrySet()) {
+                Map<String, Member> copies = new HashMap<>();
+                for (Map.Entry<String, Member> m : overloads.getValue().entrySet()) {
+                    copies.put(m.getKey(), new Member(m.getValue().restrictions));
+                }
+                methods.put(overloads.getKey(), copies);
+            }
+        }
+
+        /**
+         * @param outerNested
+         *      Result of {@link RestrictionTable#nested(String)} for the enclosing type.
+         */
+        void resolve(List<Restrictions> outerNested) {
+            resolved = prepend(own, outerNested);
+            for (Member m : fields.values()) {
+                m.resolved = prepend(m.restrictions, nested);
+            }
+            for (Map<String, Member> overloads : methods.values()) {
+                for (Member m : overloads.values()) {
+                    m.resolved = prepend(m.restrictions, nested);
+                }
+            }
+        }
+
+        static List<Restrictions> prepend(Restrictions r, List<Restrictions> rs) {
+            if (r == null) {
+                return rs;
+            }
+            List<Restrictions> all = new ArrayList<>(rs.size() + 1);
+            all.add(r);
+            all.addAll(rs);
+            return Collections.unmodifiableList(all);
+        }
+    }
+
+    private static final class Member {
+        final Restrictions restrictions;
+
+        /**
+         * Result of {@link RestrictionTable#forField(String, String, Set)}
+         * or {@link RestrictionTable#forMethod(String, String, String, Set)} for this member.
+         */
+        List<Restrictions> resolved;
+
+        Member(Restrictions restrictions) {
+            this.restrictions = restrictions;
+        }
+    }
+}
@@ -24,13 +24,9 @@
 package org.kohsuke.accmod.impl;
 
 import org.kohsuke.accmod.AccessRestriction;
-import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -91,44 +87,4 @@ public class Restrictions extends ArrayList<AccessRestriction> {
     public int hashCode() {
         return Objects.hash(super.hashCode(), target);
     }
-
-    abstract static class Parser extends AnnotationVisitor {
-        private List<Type> restrictions = new ArrayList<>();
-        private final RestrictedElement target;
-
-        protected Parser(RestrictedElement target) {
-            super(Opcodes.ASM9);
-            this.target = target;
-        }
-
-        @Override
-        public void visit(String name, Object value) {
-            restrictions.add((Type)value);
-        }
-
-        @Override
-        public void visitEnum(String name, String desc, String value) {
-        }
-
-        @Override
-        public AnnotationVisitor visitAnnotation(String name, String desc) {
-            return this;
-        }
-
-        @Override
-        public AnnotationVisitor visitArray(String name) {
-            return this;
-        }
-
-        @Override
-        public abstract void visitEnd();
-
-        public Restrictions build(AccessRestrictionFactory f) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
-            Restrictions r = new Restrictions(target);
-            for (Type t : restrictions) {
-                r.add(f.get(t));
-            }
-            return r;
-        }
-    }
 }
@@ -0,0 +1,58 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for reading the restrictions of one {@code @Restricted} class of a dependency.
+ * Disabled unless turned on in the recording settings.
+ */
+@Name("org.kohsuke.accmod.RestrictionsParsed")
+@Label("Restrictions Parsed")
+@Category("Access Modifier Checker")
+@Description("Restrictions read from a class listed by the annotation index")
+@Enabled(false)
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Read by the flight recorder")
+final class RestrictionsParsedEvent extends Event {
+    @Label("Source")
+    @Description("Jar file or class directory, if known")
+    String source;
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Restricted Elements")
+    int keys;
+
+    @Label("From Manifest")
+    @Description("Whether the restrictions came from the manifest of the annotation processor rather than from the class file")
+    boolean fromManifest;
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of a {@link Checker}, to find out where the time goes.
+ *
+ * <p>
+ * The counters can be updated from several threads at once. Per-instruction counts are kept
+ * in the visitor of each class and added here once the class is done.
+ */
+final class ScanMetrics {
+    /**
+     * Classes whose code was visited.
+     */
+    final LongAdder classesScanned = new LongAdder();
+
+    /**
+     * Classes that were not visited because they do not refer to any restricted type.
+     */
+    final LongAdder classesSkipped = new LongAdder();
+
+    /**
+     * Classes whose results were taken from a previous build.
+     */
+    final LongAdder classesReused = new LongAdder();
+
+    /**
+     * Classes visited a second time, with debug information, to report line numbers.
+     */
+    final LongAdder classesRescanned = new LongAdder();
+
+    /**
+     * Type, field and method instructions visited.
+     */
+    final LongAdder instructions = new LongAdder();
+
+    /**
+     * Restriction lookups, and those that found restrictions.
+     */
+    final LongAdder lookups = new LongAdder(), hits = new LongAdder();
+
+    /**
+     * Restricted elements loaded.
+     */
+    final LongAdder restrictionsLoaded = new LongAdder();
+
+    /**
+     * Time spent opening the class path, loading restrictions up front, and checking classes.
+     * These are wall-clock times of the thread that runs the check, so they can be added up.
+     */
+    final LongAdder classPathNanos = new LongAdder(), loadNanos = new LongAdder(), checkNanos = new LongAdder();
+
+    /**
+     * Time spent creating restrictions that were deferred until a checked class needed them.
+     * That happens while classes are checked, so this is part of {@link #checkNanos}, not of {@link #loadNanos},
+     * and it is summed over all the threads that check classes, so with several of them it can exceed the time of the check.
+     */
+    final LongAdder deferredLoadNanos = new LongAdder();
+
+    private Map<String, Long> values() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("classesScanned", classesScanned.sum());
+        m.put("classesSkipped", classesSkipped.sum());
+        m.put("classesReused", classesReused.sum());
+        m.put("classesRescanned", classesRescanned.sum());
+        m.put("instructions", instructions.sum());
+        m.put("lookups", lookups.sum());
+        m.put("hits", hits.sum());
+        m.put("restrictionsLoaded", restrictionsLoaded.sum());
+        m.put("classPathMillis", millis(classPathNanos));
+        m.put("loadRestrictionsMillis", millis(loadNanos));
+        m.put("checkMillis", millis(checkNanos));
+        m.put("deferredLoadRestrictionsMillis", millis(deferredLoadNanos));
+        return m;
+    }
+
+    private static long millis(LongAdder nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+    }
+
+    /**
+     * One line for the build log.
+     */
+    String summary() {
+        Map<String, Long> m = values();
+        return String.format("Checked %d classes (%d skipped, %d reused), %d instructions, %d lookups (%d hits), %d restrictions loaded;"
+                + " class path %d ms, restrictions %d ms, check %d ms (deferred restrictions %d ms, summed over threads)",
+                m.get("classesScanned") + m.get("classesSkipped") + m.get("classesReused"),
+                m.get("classesSkipped"), m.get("classesReused"), m.get("instructions"), m.get("lookups"), m.get("hits"),
+                m.get("restrictionsLoaded"), m.get("classPathMillis"), m.get("loadRestrictionsMillis"), m.get("checkMillis"),
+                m.get("deferredLoadRestrictionsMillis"));
+    }
+
+    /**
+     * A flat JSON object of all the values.
+     */
+    String toJson() {
+        StringBuilder b = new StringBuilder("{");
+        for (Map.Entry<String, Long> e : values().entrySet()) {
+            if (b.length() > 1) {
+                b.append(',');
+            }
+            b.append("\n  \"").append(e.getKey()).append("\": ").append(e.getValue());
+        }
+        return b.append("\n}\n").toString();
+    }
+}
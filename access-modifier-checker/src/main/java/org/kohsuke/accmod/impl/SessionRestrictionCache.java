@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * Keeps {@link RestrictionIndex}es of jar files in memory for the rest of a Maven session,
+ * so that the modules of a reactor do not each parse the same dependencies again.
+ *
+ * <p>
+ * Entries are identified like in {@link RestrictionIndexCache}. The least recently used ones are dropped
+ * once the indexes hold more restricted elements than the capacity. Modules built concurrently can share it;
+ * two of them asking for the same jar at the same time may both read it.
+ */
+final class SessionRestrictionCache {
+    /**
+     * Maximum number of restricted elements kept.
+     */
+    private final int capacity;
+
+    /**
+     * Number of restricted elements kept.
+     */
+    private int weight;
+
+    /**
+     * From the path, size and timestamp of a jar, in the order of use.
+     */
+    private final Map<String, RestrictionIndex> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    SessionRestrictionCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Obtains the cache of the given session, creating it if this is the first module to ask.
+     *
+     * @param capacity
+     *      Used only if the cache is created.
+     * @return
+     *      null if the session has a cache from a different version of this plugin.
+     */
+    static SessionRestrictionCache of(RepositorySystemSession session, int capacity) {
+        Object cache = session.getData().computeIfAbsent(SessionRestrictionCache.class.getName(), () -> new SessionRestrictionCache(capacity));
+        return cache instanceof SessionRestrictionCache ? (SessionRestrictionCache) cache : null;
+    }
+
+    /**
+     * Reads restrictions.
+     */
+    interface Reader {
+        RestrictionIndex read(ClassPath.Container container) throws IOException;
+    }
+
+    /**
+     * Obtains the index of the given jar, from the cache if possible, or from the given reader otherwise.
+     */
+    RestrictionIndex get(ClassPath.Container container, Reader reader) throws IOException {
+        File jar = container.file;
+        if (!jar.isFile()) {
+            return reader.read(container); // class directories change all the time
+        }
+        String key = jar.getAbsolutePath() + '|' + jar.length() + '|' + jar.lastModified();
+        synchronized (this) {
+            RestrictionIndex index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+        }
+        RestrictionIndex index = reader.read(container);
+        int size = index.getRestrictions().size() + 1;
+        synchronized (this) {
+            if (size <= capacity && !entries.containsKey(key)) {
+                entries.put(key, index);
+                weight += size;
+                for (Iterator<RestrictionIndex> it = entries.values().iterator(); weight > capacity; ) {
+                    weight -= it.next().getRestrictions().size() + 1;
+                    it.remove();
+                }
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where restricted elements are used, whether the use is allowed or not.
+ *
+ * <p>
+ * The file has one line per use: the restricted key (see {@link Checker}), the internal name of the class
+ * that uses it, the name and descriptor of the method that uses it (empty for a use as a supertype),
+ * and the line number (0 if unknown), separated by tabs, followed by another tab and {@code suppressed}
+ * if the restrictions of the element are suppressed there by {@code @SuppressRestrictedWarnings}.
+ * Lines are sorted and unique, so that files of many modules can be merged without loading them whole,
+ * and the uses of an element found by a binary search.
+ */
+final class UsageIndex {
+    private final Set<String> lines = ConcurrentHashMap.newKeySet();
+
+    void addAll(Collection<String> uses) {
+        lines.addAll(uses);
+    }
+
+    static String line(String key, String className, String method, int line, boolean suppressed) {
+        return key + '\t' + className + '\t' + (method != null ? method : "") + '\t' + line + (suppressed ? "\tsuppressed" : "");
+    }
+
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User-provided value for running the program")
+    void write(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null) {
+            Files.createDirectories(dir.toPath());
+        }
+        Files.write(file.toPath(), new TreeSet<>(lines), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Merges files written by {@link #write(File)} into one, reading each of them once, line by line.
+     */
+    static void merge(List<File> inputs, File output) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>();
+        try (BufferedWriter w = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing((Head h) -> h.line));
+            for (File f : inputs) {
+                BufferedReader r = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8);
+                readers.add(r);
+                Head.next(r, heads);
+            }
+            String last = null;
+            while (!heads.isEmpty()) {
+                Head h = heads.poll();
+                if (!h.line.equals(last)) {
+                    w.write(h.line);
+                    w.newLine();
+                    last = h.line;
+                }
+                Head.next(h.reader, heads);
+            }
+        } finally {
+            for (BufferedReader r : readers) {
+                r.close();
+            }
+        }
+    }
+
+    /**
+     * Finds the uses of the given element in a file written by {@link #write(File)} or {@link #merge(List, File)}.
+     *
+     * @param key
+     *      Restricted key, or a prefix of it; for example "a/b/C." finds the uses of all the members of a type.
+     */
+    static List<String> query(File file, String key) throws IOException {
+        List<String> found = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the lowest position from which the next line is not before the key
+            long lo = 0, hi = ch.size();
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                String line = readLine(ch, lineStart(ch, mid));
+                if (line != null && line.compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            // the uses of the element follow, as they are the lines that start with the key
+            ch.position(lineStart(ch, lo));
+            try (BufferedReader r = new BufferedReader(Channels.newReader(ch, StandardCharsets.UTF_8.newDecoder(), -1))) {
+                String line;
+                while ((line = r.readLine()) != null && line.startsWith(key)) {
+                    found.add(line);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The position of the first line that starts at or after the given position, or the size of the file if there is none.
+     */
+    private static long lineStart(FileChannel ch, long pos) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        ByteBuffer b = ByteBuffer.allocate(256);
+        for (long p = pos - 1;;) {
+            b.clear();
+            int n = ch.read(b, p);
+            if (n < 0) {
+                return ch.size();
+            }
+            for (int i = 0; i < n; i++) {
+                if (b.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += n;
+        }
+    }
+
+    /**
+     * The line that starts at the given position, or null at the end of the file.
+     */
+    private static String readLine(FileChannel ch, long start) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer b = ByteBuffer.allocate(256);
+        for (long p = start;;) {
+            b.clear();
+            int n = ch.read(b, p);
+            if (n < 0) {
+                break;
+            }
+            int i = 0;
+            while (i < n && b.get(i) != '\n') {
+                i++;
+            }
+            line.write(b.array(), 0, i);
+            if (i < n) {
+                break;
+            }
+            p += n;
+        }
+        if (line.size() == 0 && start >= ch.size()) {
+            return null;
+        }
+        String s = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    /**
+     * The next line of one of the merged files.
+     */
+    private static final class Head {
+        final String line;
+        final BufferedReader reader;
+
+        private Head(String line, BufferedReader reader) {
+            this.line = line;
+            this.reader = reader;
+        }
+
+        static void next(BufferedReader reader, PriorityQueue<Head> heads) throws IOException {
+            String line = reader.readLine();
+            if (line != null) {
+                heads.add(new Head(line, reader));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for an error found by a {@link Checker}, recorded when the error is found,
+ * so results that are recorded and replayed later, or reused from an earlier build, are not recorded again.
+ * Disabled unless turned on in the recording settings.
+ */
+@Name("org.kohsuke.accmod.Violation")
+@Label("Violation")
+@Category("Access Modifier Checker")
+@Description("Error reported by the checker")
+@Enabled(false)
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Read by the flight recorder")
+final class ViolationEvent extends Event {
+    @Label("Class Name")
+    String className;
+
+    @Label("Method")
+    String method;
+
+    @Label("Line Number")
+    int line;
+
+    @Label("Message")
+    String message;
+
+    /**
+     * Wraps a listener so that the errors it receives are also recorded as events.
+     */
+    static ErrorListener recording(final ErrorListener listener) {
+        return new ErrorListener() {
+            @Override
+            public void onError(Throwable t, Location loc, String msg) {
+                ViolationEvent event = new ViolationEvent();
+                if (event.shouldCommit()) {
+                    if (loc != null) {
+                        event.className = loc.getClassName();
+                        event.method = loc.getMethodName() != null ? loc.getMethodName() + loc.getMethodDescriptor() : null;
+                        event.line = loc.getLineNumber();
+                    }
+                    event.message = msg;
+                    event.commit();
+                }
+                listener.onError(t, loc, msg);
+            }
+
+            @Override
+            public void onWarning(Throwable t, Location loc, String msg) {
+                listener.onWarning(t, loc, msg);
+            }
+        };
+    }
+}
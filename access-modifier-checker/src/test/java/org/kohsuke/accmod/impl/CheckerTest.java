@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class CheckerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Instructions that use nothing restricted must not allocate, so checking a class costs the same
+     * however much code it has, apart from what ASM allocates to read the code.
+     */
+    @Test
+    public void instructionsDoNotAllocate() throws IOException {
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        RecordingErrorListener errors = new RecordingErrorListener();
+        Checker checker = new Checker(getClass().getClassLoader(), errors, new Properties(), new SystemStreamLog(), false);
+        // a member of the type is restricted, so that its uses are visited, but none of those used
+        Map<String, List<String>> restricted = Collections.singletonMap("a/Api.unused()V",
+                Collections.singletonList(NoExternalUse.class.getName()));
+        checker.loadRestrictions(RestrictionIndex.of(restricted), false);
+
+        File small = write("Small", 100);
+        File large = write("Large", 1000);
+        long checked = Long.MAX_VALUE, read = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) { // the first rounds warm up, and the least growth is the one without noise
+            checked = Math.min(checked, allocated(() -> checker.checkClass(large)) - allocated(() -> checker.checkClass(small)));
+            read = Math.min(read, allocated(() -> read(large)) - allocated(() -> read(small)));
+        }
+        assertTrue(errors.isEmpty());
+        assertTrue("checking 900 more uses allocated " + checked + " more bytes, reading them " + read, checked - read < 1024);
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private long allocated(Task task) throws IOException {
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        task.run();
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    /**
+     * Reads the code of a class like the checker does, but without looking at it.
+     */
+    private static void read(File clazz) throws IOException {
+        new ClassReader(Files.readAllBytes(clazz.toPath())).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {};
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    /**
+     * Writes a class whose method creates an {@code a.Api}, reads one of its fields and calls one of its methods, the given number of times.
+     */
+    private File write(String name, int uses) throws IOException {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, "b/" + name, null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()V", null, null);
+        mv.visitCode();
+        for (int i = 0; i < uses; i++) {
+            mv.visitTypeInsn(Opcodes.NEW, "a/Api");
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "a/Api", "<init>", "()V", false);
+            mv.visitInsn(Opcodes.POP);
+            mv.visitFieldInsn(Opcodes.GETSTATIC, "a/Api", "field", "I");
+            mv.visitInsn(Opcodes.POP);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "a/Api", "method", "()V", false);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        File f = tmp.newFile(name + ".class");
+        Files.write(f.toPath(), cw.toByteArray());
+        return f;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.annotation_indexer.Indexed;
+import org.kohsuke.accmod.Restricted;
+
+/**
+ * The manifest written by {@link RestrictionManifestProcessor} has to have the same keys as the class files.
+ */
+public class RestrictionManifestProcessorTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String API = String.join("\n",
+            "package p;",
+            "import java.util.List;",
+            "import org.kohsuke.accmod.Restricted;",
+            "import org.kohsuke.accmod.restrictions.*;",
+            "@Restricted(NoExternalUse.class)",
+            "public class Api<T extends Number> {",
+            "  @Restricted(DoNotUse.class) public T value;",
+            "  @Restricted(DoNotUse.class) public Api(T value, String... names) {}",
+            "  @Restricted(DoNotUse.class) public T get() { return value; }",
+            "  @Restricted(DoNotUse.class) public <E extends Comparable<? super E>> E max(List<? extends E> list, int[][] a) { return null; }",
+            "  @Restricted({DoNotUse.class, NoExternalUse.class}) public void set(T value, Api<?>.Inner inner) {}",
+            "  public static class Nested {",
+            "    @Restricted(DoNotUse.class) public Nested(long l) {}",
+            "    @Restricted(DoNotUse.class) public static class Deeper {",
+            "      @Restricted(DoNotUse.class) public Deeper[] all(Nested n, Object... rest) { return null; }",
+            "    }",
+            "  }",
+            "  public class Inner {",
+            "    @Restricted(DoNotUse.class) public Inner(T t) {}",
+            "    @Restricted(DoNotUse.class) public class Innermost {",
+            "      @Restricted(DoNotUse.class) public Innermost() {}",
+            "    }",
+            "  }",
+            "  public enum Kind {",
+            "    @Restricted(DoNotUse.class) ONE, TWO;",
+            "    @Restricted(DoNotUse.class) Kind() {}",
+            "  }",
+            "  public interface Callback {",
+            "    @Restricted(DoNotUse.class) void call(Api<? extends Integer> api);",
+            "    class Impl {",
+            "      @Restricted(DoNotUse.class) public Impl(Kind kind) {}",
+            "    }",
+            "  }",
+            "  @Restricted(DoNotUse.class) public @interface Marker {",
+            "    @Restricted(DoNotUse.class) String value();",
+            "  }",
+            "}");
+
+    private static final String ODD = String.join("\n",
+            "package p;",
+            "import org.kohsuke.accmod.Restricted;",
+            "import org.kohsuke.accmod.restrictions.DoNotUse;",
+            "public class Odd$Name {",
+            "  @Restricted(DoNotUse.class) public void m(Odd$Name o) {}",
+            "  public static class Nested$Too {",
+            "    @Restricted(DoNotUse.class) public void m(Nested$Too o) {}",
+            "  }",
+            "}");
+
+    private static final String OTHER = String.join("\n",
+            "package p;",
+            "import org.kohsuke.accmod.Restricted;",
+            "import org.kohsuke.accmod.restrictions.DoNotUse;",
+            "public class Other {",
+            "  @Restricted(DoNotUse.class) public void m(Api.Nested n, Odd$Name o) {}",
+            "}");
+
+    @Test
+    public void sameKeysAsClassFiles() throws Exception {
+        File out = compile(source("Api", API), source("Odd$Name", ODD), source("Other", OTHER));
+        Map<String, List<String>> manifest = manifest(out);
+        assertEquals(21, manifest.size());
+        // without the manifest, the restrictions are read from the class files
+        Files.delete(new File(out, RestrictionManifestProcessor.MANIFEST).toPath());
+        try (ClassPath cp = new ClassPath(List.of(out), null)) {
+            assertEquals(new TreeMap<>(RestrictionIndex.read(cp.getContainer(out)).getRestrictions()), manifest);
+        }
+    }
+
+    @Test
+    public void incrementalCompilationKeepsTypesThatWereNotCompiled() throws Exception {
+        File api = source("Api", API);
+        File odd = source("Odd$Name", ODD);
+        File other = source("Other", OTHER);
+        File out = compile(api, odd, other);
+        Map<String, List<String>> all = manifest(out);
+        compile(other);
+        assertEquals(all, manifest(out));
+        compile(odd);
+        assertEquals(all, manifest(out));
+    }
+
+    private File source(String name, String text) throws IOException {
+        File f = new File(tmp.getRoot(), "src/p/" + name + ".java");
+        Files.createDirectories(f.getParentFile().toPath());
+        Files.write(f.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    /**
+     * Compiles into the same directory every time, with the annotation indexer and the manifest processor.
+     */
+    private File compile(File... sources) throws IOException, URISyntaxException {
+        File out = new File(tmp.getRoot(), "classes");
+        Files.createDirectories(out.toPath());
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            files.setLocation(StandardLocation.CLASS_PATH, List.of(out, location(Restricted.class), location(Indexed.class)));
+            List<String> options = Arrays.asList("-d", out.getPath(), "-implicit:none");
+            JavaCompiler.CompilationTask task = javac.getTask(null, files, null, options, null, files.getJavaFileObjects(sources));
+            List<Processor> processors = new ArrayList<>();
+            ServiceLoader.load(Processor.class).forEach(processors::add);
+            processors.add(new RestrictionManifestProcessor());
+            task.setProcessors(processors);
+            assertTrue("compiled", task.call());
+        }
+        return out;
+    }
+
+    private static File location(Class<?> c) throws URISyntaxException {
+        return new File(c.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    private static Map<String, List<String>> manifest(File out) throws IOException {
+        Map<String, List<String>> manifest = new TreeMap<>();
+        for (String line : Files.readAllLines(new File(out, RestrictionManifestProcessor.MANIFEST).toPath(), StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            manifest.put(line.substring(0, tab), Arrays.asList(line.substring(tab + 1).split(",")));
+        }
+        return manifest;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.kohsuke.accmod.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.kohsuke.accmod.AccessRestriction;
+import org.kohsuke.accmod.restrictions.DoNotUse;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Lookups in {@link RestrictionTable} are made for every instruction, so once the table is loaded they must not allocate.
+ */
+public class RestrictionTableTest {
+    @Test
+    public void lookupsDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        RestrictionTable table = new RestrictionTable();
+        table.put("a/Restricted", restrictions(new DoNotUse()));
+        table.put("a/Api.field", restrictions(new NoExternalUse()));
+        table.put("a/Api.method(I)V", restrictions(new NoExternalUse()));
+        table.put("a/Api$Nested.<init>()V", restrictions(new NoExternalUse()));
+        // never looked up, so that lookups keep checking for deferred restrictions
+        table.defer("a/Deferred", () -> Map.of("a/Deferred", restrictions(new DoNotUse())));
+
+        // the first lookups work out the results and may allocate
+        int found = lookups(table);
+        assertEquals(20, found);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10_000; i++) {
+            found += lookups(table);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertEquals(20 * 10_001, found);
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void layeredOnBase() {
+        RestrictionTable base = new RestrictionTable();
+        base.put("a/Restricted", restrictions(new DoNotUse()));
+        base.put("a/Api.method(I)V", restrictions(new NoExternalUse()));
+        RestrictionTable table = new RestrictionTable(base);
+        table.put("b/Own.field", restrictions(new NoExternalUse()));
+
+        assertEquals(1, size(table.forType("a/Restricted$Nested", Collections.emptySet())));
+        assertEquals(1, size(table.forMethod("a/Api", "method", "(I)V", Collections.emptySet())));
+        assertEquals(1, size(table.forField("b/Own", "field", Collections.emptySet())));
+        assertEquals(0, size(table.forField("a/Api", "field", Collections.emptySet())));
+        assertTrue(table.mayApplyTo("a/Api"));
+        assertTrue(table.mayApplyTo("b/Own"));
+        assertEquals(0, size(base.forField("b/Own", "field", Collections.emptySet())));
+    }
+
+    /**
+     * Makes the kinds of lookups that the checker makes, and counts the restrictions found.
+     */
+    private static int lookups(RestrictionTable table) {
+        int found = 0;
+        for (String type : TYPES) {
+            found += size(table.forType(type, Collections.emptySet()));
+            found += size(table.forField(type, "field", Collections.emptySet()));
+            found += size(table.forMethod(type, "method", "(I)V", Collections.emptySet()));
+            found += size(table.forMethod(type, "<init>", "()V", Collections.emptySet()));
+            found += table.mayApplyTo(type) ? 1 : 0;
+        }
+        return found;
+    }
+
+    private static final String[] TYPES = {
+        "a/Restricted", "a/Restricted$Nested", "a/Restricted$Nested$Deeper",
+        "a/Api", "a/Api$Nested", "a/Api$Other", "a/Unrestricted", "a/Unrestricted$Nested", "java/lang/String",
+    };
+
+    private static int size(List<Restrictions> rs) {
+        int n = 0;
+        for (int i = 0; i < rs.size(); i++) { // without an iterator
+            n += rs.get(i).size();
+        }
+        return n;
+    }
+
+    private static Restrictions restrictions(AccessRestriction r) {
+        Restrictions rs = new Restrictions(null);
+        rs.add(r);
+        return rs;
+    }
+}